@@ -16,11 +16,15 @@ package org.owasp.security.logging;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.slf4j.Marker;
 
 /**
+ * An immutable marker that references several other markers. The references are held in a snapshot array, so a MultiMarker can be shared between threads and iterated without locking.
+ *
+ * {@link #add(Marker)} and {@link #remove(Marker)} are not supported; use {@link #with(Marker)} and {@link #without(Marker)}, which return a new instance, or build one with {@link #builder()}.
  *
  * @author August Detlefsen [augustd@codemagi.com]
  */
@@ -30,42 +34,136 @@ public class MultiMarker implements org.slf4j.Marker {
      * 
      */
     private static final long serialVersionUID = 2438877789519766569L;
-    private String name = "";
-    private final Set<Marker> references = new LinkedHashSet<>();
+
+    private final Marker[] references;
+
+    // bits of the built-in markers among the direct references
+    private final long mask;
+
+    // computed on first use
+    private transient String name;
+    private transient int hash;
 
     public MultiMarker(Marker... markers) {
-        references.addAll(Arrays.asList(markers));
-        updateName();
+        this(new LinkedHashSet<>(Arrays.asList(markers)));
+    }
+
+    private MultiMarker(Set<Marker> markers) {
+        references = markers.toArray(new Marker[markers.size()]);
+
+        long newMask = 0L;
+        for (Marker ref : references) {
+            newMask |= SecurityMarkers.maskOf(ref.getName());
+        }
+        mask = newMask;
+    }
+
+    /**
+     * Creates a builder for a MultiMarker.
+     *
+     * @return a new, empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     @Override
     public String getName() {
-        return name;
+        String output = name;
+        if (output == null) {
+            StringBuilder builder = new StringBuilder();
+            for (Marker ref : references) {
+                builder.append(ref.getName());
+            }
+            output = builder.toString();
+            name = output;
+        }
+        return output;
     }
 
+    /**
+     * Not supported, a MultiMarker is immutable.
+     *
+     * @throws UnsupportedOperationException
+     *             always
+     * @see #with(Marker)
+     */
     @Override
     public void add(Marker reference) {
-        references.add(reference);
-        updateName();
+        throw new UnsupportedOperationException("MultiMarker is immutable, use with(Marker) instead");
     }
 
+    /**
+     * Not supported, a MultiMarker is immutable.
+     *
+     * @throws UnsupportedOperationException
+     *             always
+     * @see #without(Marker)
+     */
     @Override
     public boolean remove(Marker reference) {
-        boolean output = references.remove(reference);
-        updateName();
+        throw new UnsupportedOperationException("MultiMarker is immutable, use without(Marker) instead");
+    }
+
+    /**
+     * Returns a MultiMarker that also references the given marker.
+     *
+     * @param reference
+     *            the marker to add
+     * @return a new MultiMarker, or this instance if the marker is already referenced
+     */
+    public MultiMarker with(Marker reference) {
+        for (Marker ref : references) {
+            if (ref.equals(reference)) {
+                return this;
+            }
+        }
+        return builder().add(references).add(reference).build();
+    }
+
+    /**
+     * Returns a MultiMarker that no longer references the given marker.
+     *
+     * @param reference
+     *            the marker to remove
+     * @return a new MultiMarker, or this instance if the marker is not referenced
+     */
+    public MultiMarker without(Marker reference) {
+        Set<Marker> markers = new LinkedHashSet<>(Arrays.asList(references));
+        if (!markers.remove(reference)) {
+            return this;
+        }
+        return new MultiMarker(markers);
+    }
+
+    /**
+     * Returns the bits of all built-in markers referenced by this marker, including nested references.
+     *
+     * @return the combined bits of the built-in markers
+     * @see SecurityMarkers#maskOf(Marker)
+     */
+    public long getMask() {
+        long output = mask;
+        for (Marker ref : references) {
+            if (ref.hasReferences()) {
+                output |= SecurityMarkers.maskOf(ref);
+            }
+        }
         return output;
     }
 
-    private void updateName() {
-        name = "";
-        StringBuilder builder = new StringBuilder();
+    /**
+     * Determines if any of the referenced markers has references of its own. Those references may change over time, unlike the references of this marker.
+     *
+     * @return <code>true</code> if a referenced marker has references
+     */
+    public boolean hasNestedReferences() {
         for (Marker ref : references) {
-            if (!Utils.isEmpty(name)) {
-                builder.append(" ");
+            if (ref.hasReferences()) {
+                return true;
             }
-            builder.append(ref.getName());
         }
-        name = builder.toString();
+        return false;
     }
 
     @Override
@@ -80,13 +178,19 @@ public class MultiMarker implements org.slf4j.Marker {
 
     @Override
     public Iterator<Marker> iterator() {
-        return references.iterator();
+        return new ReferenceIterator();
     }
 
     @Override
     public boolean contains(Marker other) {
+        long bit = SecurityMarkers.maskOf(other.getName());
+        if ((mask & bit) != 0) {
+            return true;
+        }
+
         for (Marker ref : references) {
-            if (ref.contains(other)) {
+            // without a bit the other marker is foreign and every reference must be walked
+            if ((bit == 0 || ref.hasReferences()) && ref.contains(other)) {
                 return true;
             }
         }
@@ -95,8 +199,14 @@ public class MultiMarker implements org.slf4j.Marker {
 
     @Override
     public boolean contains(String name) {
+        long bit = SecurityMarkers.maskOf(name);
+        if ((mask & bit) != 0) {
+            return true;
+        }
+
         for (Marker ref : references) {
-            if (ref.contains(name)) {
+            // without a bit the name is foreign and every reference must be walked
+            if ((bit == 0 || ref.hasReferences()) && ref.contains(name)) {
                 return true;
             }
         }
@@ -116,16 +226,67 @@ public class MultiMarker implements org.slf4j.Marker {
         }
 
         final Marker other = (Marker) obj;
-        return name.equals(other.getName());
+        return getName().equals(other.getName());
     }
 
     @Override
     public int hashCode() {
-        return name.hashCode();
+        int output = hash;
+        if (output == 0) {
+            output = getName().hashCode();
+            hash = output;
+        }
+        return output;
     }
 
     @Override
     public String toString() {
-        return name;
+        return getName();
+    }
+
+    /**
+     * Read-only iterator over the reference snapshot.
+     */
+    private class ReferenceIterator implements Iterator<Marker> {
+
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < references.length;
+        }
+
+        @Override
+        public Marker next() {
+            if (index >= references.length) {
+                throw new NoSuchElementException();
+            }
+            return references[index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("MultiMarker is immutable");
+        }
+    }
+
+    /**
+     * Collects the references of a MultiMarker. Duplicate markers are ignored and the order of the first occurrence is kept.
+     */
+    public static class Builder {
+
+        private final Set<Marker> references = new LinkedHashSet<>();
+
+        private Builder() {
+        }
+
+        public Builder add(Marker... markers) {
+            references.addAll(Arrays.asList(markers));
+            return this;
+        }
+
+        public MultiMarker build() {
+            return new MultiMarker(references);
+        }
     }
 }
@@ -1,5 +1,10 @@
 package org.owasp.security.logging;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
@@ -24,6 +29,40 @@ public class SecurityMarkers {
     public static final String EVENT_FAILURE_MARKER_NAME = "EVENT FAILURE";
     public static final String EVENT_UNSPECIFIED_MARKER_NAME = "EVENT UNSPECIFIED";
 
+    // bits identifying the built-in markers by name
+    public static final long SECURITY_MASK = 1L;
+
+    public static final long RESTRICTED_MASK = 1L << 1;
+    public static final long CONFIDENTIAL_MASK = 1L << 2;
+    public static final long SECRET_MASK = 1L << 3;
+    public static final long TOP_SECRET_MASK = 1L << 4;
+
+    public static final long SECURITY_SUCCESS_MASK = 1L << 5;
+    public static final long SECURITY_FAILURE_MASK = 1L << 6;
+    public static final long SECURITY_AUDIT_MASK = 1L << 7;
+
+    public static final long EVENT_SUCCESS_MASK = 1L << 8;
+    public static final long EVENT_FAILURE_MASK = 1L << 9;
+    public static final long EVENT_UNSPECIFIED_MASK = 1L << 10;
+
+    public static final long CLASSIFIED_MASK = RESTRICTED_MASK | CONFIDENTIAL_MASK | SECRET_MASK | TOP_SECRET_MASK;
+    public static final long SECURITY_EVENT_MASK = SECURITY_SUCCESS_MASK | SECURITY_FAILURE_MASK | SECURITY_AUDIT_MASK;
+
+    private static final Map<String, Long> MASKS = new HashMap<>();
+    static {
+        MASKS.put(SECURITY_MARKER_NAME, SECURITY_MASK);
+        MASKS.put(RESTRICTED_MARKER_NAME, RESTRICTED_MASK);
+        MASKS.put(CONFIDENTIAL_MARKER_NAME, CONFIDENTIAL_MASK);
+        MASKS.put(SECRET_MARKER_NAME, SECRET_MASK);
+        MASKS.put(TOP_SECRET_MARKER_NAME, TOP_SECRET_MASK);
+        MASKS.put(SECURITY_SUCCESS_MARKER_NAME, SECURITY_SUCCESS_MASK);
+        MASKS.put(SECURITY_FAILURE_MARKER_NAME, SECURITY_FAILURE_MASK);
+        MASKS.put(SECURITY_AUDIT_MARKER_NAME, SECURITY_AUDIT_MASK);
+        MASKS.put(EVENT_SUCCESS_MARKER_NAME, EVENT_SUCCESS_MASK);
+        MASKS.put(EVENT_FAILURE_MARKER_NAME, EVENT_FAILURE_MASK);
+        MASKS.put(EVENT_UNSPECIFIED_MARKER_NAME, EVENT_UNSPECIFIED_MASK);
+    }
+
     // information classification
     public static final Marker RESTRICTED = MarkerFactory.getDetachedMarker(RESTRICTED_MARKER_NAME);
 
@@ -45,8 +84,115 @@ public class SecurityMarkers {
 
     public static final Marker EVENT_FAILURE = MarkerFactory.getDetachedMarker(EVENT_FAILURE_MARKER_NAME);
 
+    // size of the table of interned marker combinations, must be a power of two
+    private static final int INTERNED_SIZE = 1024;
+    private static final int INTERNED_PROBES = 4;
+    private static final AtomicReferenceArray<InternedMarker> INTERNED = new AtomicReferenceArray<>(INTERNED_SIZE);
+
+    /**
+     * Returns a marker that references all of the given markers. Repeated calls with the same markers in the same order return the same instance, so the result can be used as a key in identity
+     * based caches. The table of combinations is bounded; when it is crowded a combination may be replaced and a later call will return a new, equal instance.
+     *
+     * @param markers
+     *            the markers to combine
+     * @return the combined marker
+     */
     public static Marker getMarker(Marker... markers) {
-        Marker output = new MultiMarker(markers);
-        return output;
+        int hash = 1;
+        for (Marker marker : markers) {
+            hash = 31 * hash + System.identityHashCode(marker);
+        }
+        hash ^= (hash >>> 16);
+
+        int index = hash & (INTERNED_SIZE - 1);
+        for (int probe = 0; probe < INTERNED_PROBES; probe++) {
+            InternedMarker interned = INTERNED.get((index + probe) & (INTERNED_SIZE - 1));
+            if (interned == null) {
+                break;
+            }
+            if (interned.matches(markers)) {
+                return interned.marker;
+            }
+        }
+
+        InternedMarker interned = new InternedMarker(markers.clone());
+        for (int probe = 0; probe < INTERNED_PROBES; probe++) {
+            int slot = (index + probe) & (INTERNED_SIZE - 1);
+            if (INTERNED.compareAndSet(slot, null, interned)) {
+                return interned.marker;
+            }
+            // another thread may have interned the same combination first
+            InternedMarker existing = INTERNED.get(slot);
+            if (existing.matches(markers)) {
+                return existing.marker;
+            }
+        }
+        // all slots are taken, replace the first one
+        INTERNED.set(index, interned);
+        return interned.marker;
+    }
+
+    /**
+     * Returns the bit assigned to a built-in marker name.
+     *
+     * @param markerName
+     *            name of the marker
+     * @return the bit of the built-in marker, or 0 if the name does not belong to a built-in marker
+     */
+    public static long maskOf(String markerName) {
+        Long mask = MASKS.get(markerName);
+        return mask == null ? 0L : mask;
+    }
+
+    /**
+     * Returns the bits of all built-in markers found in a marker and its references. Markers that are not built-in do not contribute to the mask, so a mask of 0 does not mean that the marker
+     * graph is empty.
+     *
+     * @param marker
+     *            the marker to examine, may be null
+     * @return the combined bits of the built-in markers
+     */
+    public static long maskOf(Marker marker) {
+        if (marker == null) {
+            return 0L;
+        }
+        if (marker instanceof MultiMarker) {
+            return ((MultiMarker) marker).getMask();
+        }
+
+        long mask = maskOf(marker.getName());
+        if (marker.hasReferences()) {
+            Iterator<Marker> references = marker.iterator();
+            while (references.hasNext()) {
+                mask |= maskOf(references.next());
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * A marker combination, keyed by the identity of its markers in order.
+     */
+    private static final class InternedMarker {
+
+        private final Marker[] markers;
+        private final Marker marker;
+
+        InternedMarker(Marker[] markers) {
+            this.markers = markers;
+            this.marker = new MultiMarker(markers);
+        }
+
+        boolean matches(Marker[] others) {
+            if (markers.length != others.length) {
+                return false;
+            }
+            for (int i = 0; i < markers.length; i++) {
+                if (markers[i] != others[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
@@ -0,0 +1,48 @@
+package org.owasp.security.logging;
+
+/**
+ * Wraps a log argument that must not be written to the logs. Only wrapped arguments are masked, so the rest of a message keeps its diagnostic value:
+ *
+ * <pre>
+ * LOGGER.info(SecurityMarkers.CONFIDENTIAL, "login user={} password={}", username, Sensitive.of(password));
+ * </pre>
+ *
+ * The masking converters recognize the wrapper with a type check and never look at the value. {@link #toString()} returns {@link #MASK} as well, so the value stays hidden from layouts that know
+ * nothing about masking.
+ */
+public final class Sensitive {
+
+    public static final String MASK = "********";
+
+    private final Object value;
+
+    private Sensitive(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * Wraps a value.
+     *
+     * @param value
+     *            the value to hide, may be <code>null</code>
+     * @return the wrapped value
+     */
+    public static Sensitive of(Object value) {
+        return new Sensitive(value);
+    }
+
+    /**
+     * @return the wrapped value, for code that explicitly needs it
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return {@link #MASK}, never the value
+     */
+    @Override
+    public String toString() {
+        return MASK;
+    }
+}
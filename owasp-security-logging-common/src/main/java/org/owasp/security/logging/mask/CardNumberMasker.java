@@ -0,0 +1,212 @@
+package org.owasp.security.logging.mask;
+
+/**
+ * Masks payment card numbers (PANs): 13 to 19 digits that stand on their own and pass the Luhn checksum, either ungrouped or in one of the standard groupings 4-4-4-4 (optionally followed by a
+ * group of up to 3 digits), 4-6-5 and 4-6-4 with one kind of separator, a space or a dash. All digits but the last four are replaced by {@link #MASK_CHAR}, and the separators are kept. A card
+ * number is found even when other numbers follow or precede it with a single separator in between, while lists of short numbers are never taken for one.
+ *
+ * Messages are scanned once from left to right and the checksum is computed on the message itself, so messages without a card number are returned as is without allocating. Digit runs that fail
+ * the checksum, such as most order numbers and timestamps, are left alone.
+ */
+public final class CardNumberMasker {
+
+    public static final char MASK_CHAR = '*';
+
+    public static final int MIN_DIGITS = 13;
+
+    public static final int MAX_DIGITS = 19;
+
+    // digits left unmasked at the end of a card number
+    private static final int VISIBLE_DIGITS = 4;
+
+    // digits per group of the standard groupings, a negative size allows 1 up to that many digits
+    private static final int[][] GROUPINGS = { { 4, 4, 4, 4, -3 }, { 4, 4, 4, 4 }, { 4, 6, 5 }, { 4, 6, 4 } };
+
+    private CardNumberMasker() {
+    }
+
+    /**
+     * Masks the card numbers in a message.
+     *
+     * @param message
+     *            the message, may be <code>null</code>
+     * @return the masked message, or the same instance if it contains no card number
+     */
+    public static String mask(String message) {
+        if (message == null) {
+            return null;
+        }
+        long card = find(message, 0);
+        if (card < 0) {
+            return message;
+        }
+        StringBuilder out = new StringBuilder(message.length());
+        appendMasked(message, card, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends a message to a buffer with its card numbers masked.
+     *
+     * @param message
+     *            the message
+     * @param out
+     *            the buffer to append to
+     * @return true if anything was masked
+     */
+    public static boolean mask(CharSequence message, StringBuilder out) {
+        long card = find(message, 0);
+        if (card < 0) {
+            out.append(message);
+            return false;
+        }
+        appendMasked(message, card, out);
+        return true;
+    }
+
+    // appends the message masking the card found and every following one; overlapping cards are masked together
+    private static void appendMasked(CharSequence message, long card, StringBuilder out) {
+        int last = 0;
+        while (card >= 0) {
+            int start = (int) (card >>> 32);
+            int end = (int) card;
+            int from = Math.max(start, last);
+            int maskEnd = lastVisibleDigits(message, end);
+            out.append(message, last, from);
+            for (int i = from; i < maskEnd; i++) {
+                char c = message.charAt(i);
+                out.append(isDigit(c) ? MASK_CHAR : c);
+            }
+            last = Math.max(from, maskEnd);
+            // a card can also start at any later group of the same run
+            card = find(message, endOfGroup(message, start));
+        }
+        out.append(message, last, message.length());
+    }
+
+    /**
+     * Finds the next card number. A candidate starts at any group of digits that is not part of a longer word or number, so a card number next to an amount, a date or another number is still
+     * found. Of the ungrouped or standard grouped candidates starting at the earliest group, the longest one passing the checksum is returned.
+     *
+     * @return the start of the card number in the high and its end in the low 32 bits, or -1 if there is none
+     */
+    static long find(CharSequence message, int from) {
+        int length = message.length();
+        int i = from;
+        while (i < length) {
+            if (!isDigit(message.charAt(i))) {
+                i++;
+                continue;
+            }
+            int groupEnd = endOfGroup(message, i);
+            if (isBoundary(message, i - 1)) {
+                int card = groupEnd - i >= MIN_DIGITS ? ungrouped(message, i, groupEnd) : grouped(message, i, groupEnd);
+                if (card >= 0) {
+                    return ((long) i << 32) | card;
+                }
+            }
+            i = groupEnd;
+        }
+        return -1L;
+    }
+
+    // an ungrouped card number is a whole group of digits
+    private static int ungrouped(CharSequence message, int start, int end) {
+        return end - start <= MAX_DIGITS && isBoundary(message, end) && luhn(message, start, end) ? end : -1;
+    }
+
+    // the end of the longest standard grouping starting at start that passes the checksum, or -1
+    private static int grouped(CharSequence message, int start, int groupEnd) {
+        if (groupEnd >= message.length() || !isSeparator(message.charAt(groupEnd))) {
+            return -1;
+        }
+        char separator = message.charAt(groupEnd);
+        int card = -1;
+        for (int[] grouping : GROUPINGS) {
+            int end = endOfGrouping(message, start, separator, grouping);
+            if (end > card && isBoundary(message, end) && luhn(message, start, end)) {
+                card = end;
+            }
+        }
+        return card;
+    }
+
+    // the end of the groups of the given sizes joined by the separator, or -1 if the digits at start are grouped differently
+    private static int endOfGrouping(CharSequence message, int start, char separator, int[] grouping) {
+        int length = message.length();
+        int i = start;
+        for (int g = 0; g < grouping.length; g++) {
+            if (g > 0) {
+                if (i + 1 >= length || message.charAt(i) != separator || !isDigit(message.charAt(i + 1))) {
+                    return -1;
+                }
+                i++;
+            }
+            int end = endOfGroup(message, i);
+            int size = end - i;
+            if (grouping[g] > 0 ? size != grouping[g] : size > -grouping[g]) {
+                return -1;
+            }
+            i = end;
+        }
+        return i;
+    }
+
+    /**
+     * @return true if the digits between start and end pass the Luhn checksum
+     */
+    static boolean luhn(CharSequence message, int start, int end) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = end - 1; i >= start; i--) {
+            char c = message.charAt(i);
+            if (!isDigit(c)) {
+                continue;
+            }
+            int digit = c - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    // the end of the group of digits starting at i
+    private static int endOfGroup(CharSequence message, int i) {
+        int length = message.length();
+        while (i < length && isDigit(message.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // the index of the first of the last digits left visible before end
+    private static int lastVisibleDigits(CharSequence message, int end) {
+        int visible = 0;
+        int i = end;
+        while (visible < VISIBLE_DIGITS) {
+            if (isDigit(message.charAt(--i))) {
+                visible++;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-';
+    }
+
+    // a card number must not be part of a longer word or number
+    private static boolean isBoundary(CharSequence message, int index) {
+        return index < 0 || index >= message.length() || !Character.isLetterOrDigit(message.charAt(index));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,58 @@
+package org.owasp.security.logging.mask;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The pre-defined masking rules shared by the Logback and Log4j masking converters. Each option lists the keys, separated by <code>|</code>, whose values are masked by the rule in the same
+ * position: CompleteMask, MaskLastFour, MaskFirstFour, emailMasking.
+ */
+public final class DefinedMaskingRules {
+
+    // rule for each option, in option order: CompleteMask, MaskLastFour, MaskFirstFour, emailMasking
+    private static final String[] RULES = {
+            "([\"]?(%s)[\"]?\\s*[:=]{1}\\s*[\"]?)(?:[^\"\\n]+)",
+            "([\"]?(%s)[\"]?[:=]{1}[\"]?[\\w.+/=]+)(?:[\\w.+/=]{4})",
+            "([\"]?(%s)[\"]?[:=]{1}[\"]?)(?:[\\w.+/=]+(?=\\w{4}))",
+            "([\"]?(%s)[\"]?\\s*[:=]{1}\\s*[\"]?[\\w.]+(?=@[\\w.]+))(?:@[\\w.]+)" };
+
+    // keys that are plain words, which the message can be prescreened for
+    private static final Pattern LITERAL_KEY = Pattern.compile("[A-Za-z0-9_\\-]+");
+
+    private DefinedMaskingRules() {
+    }
+
+    /**
+     * Compiles the rules for a list of options. Missing or blank options and options beyond the last rule are ignored.
+     *
+     * @param options
+     *            the keys of each rule, may be <code>null</code>
+     * @return the masker
+     */
+    public static RegexMasker compile(List<String> options) {
+        RegexMasker.Builder builder = RegexMasker.builder().flags(Pattern.COMMENTS);
+        if (options != null) {
+            for (int i = 0; i < RULES.length && i < options.size(); i++) {
+                String keys = options.get(i);
+                if (keys != null && !keys.trim().isEmpty()) {
+                    builder.addRule(String.format(RULES[i], keys), keywords(keys));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the keys of an option if they are all plain words, or none if the rule must always run.
+     */
+    static String[] keywords(String keys) {
+        // whitespace is ignored in the rules, which are compiled with comments enabled
+        String[] keywords = keys.replaceAll("\\s", "").split("\\|", -1);
+        for (String keyword : keywords) {
+            if (!LITERAL_KEY.matcher(keyword).matches()) {
+                return new String[0];
+            }
+        }
+        return keywords;
+    }
+}
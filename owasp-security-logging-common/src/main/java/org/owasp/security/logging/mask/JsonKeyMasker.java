@@ -0,0 +1,454 @@
+package org.owasp.security.logging.mask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Masks the values of JSON members whose key is in a set, at any depth. String values are replaced by {@link #MASK} within their quotes, numbers, booleans and nulls by a quoted mask, and all
+ * values nested in an object or array of a masked key are masked while their keys are kept. Keys are compared ignoring case, after their escapes are decoded.
+ *
+ * Messages are tokenized in a single pass from each <code>{</code> on, following the nesting without building a tree, and text that is not JSON is left alone. Masking stops where the JSON
+ * ends or breaks off, so truncated payloads are masked up to the point where they were cut. JSON embedded as a string value, such as <code>{"body":"{\"password\":\"x\"}"}</code>, is
+ * tokenized through its escapes as well; JSON escaped more than once is not. Messages without a masked value are returned as is without allocating.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class JsonKeyMasker {
+
+    public static final String MASK = RegexMasker.MASK;
+
+    /**
+     * Deepest nesting that is followed, JSON nested deeper is left as is.
+     */
+    public static final int MAX_DEPTH = 64;
+
+    // buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    // what the tokenizer expects next
+    private static final int KEY_OR_END = 0;
+    private static final int KEY = 1;
+    private static final int VALUE_OR_END = 2;
+    private static final int VALUE = 3;
+    private static final int AFTER_VALUE = 4;
+
+    // read at the end of the text or at an invalid escape
+    private static final char END = '\uFFFF';
+
+    // the keys in lower case, by length
+    private final String[][] keys;
+
+    private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    // keys with escapes are decoded into these before they are looked up
+    private final ThreadLocal<StringBuilder> decodedKeys = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(32);
+        }
+    };
+
+    /**
+     * Creates a masker.
+     *
+     * @param keys
+     *            the keys whose values are masked
+     */
+    public JsonKeyMasker(Collection<String> keys) {
+        List<List<String>> byLength = new ArrayList<>();
+        for (String key : keys) {
+            if (key == null || key.isEmpty()) {
+                continue;
+            }
+            while (byLength.size() <= key.length()) {
+                byLength.add(new ArrayList<String>());
+            }
+            byLength.get(key.length()).add(key.toLowerCase(Locale.ROOT));
+        }
+        this.keys = new String[byLength.size()][];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = byLength.get(i).toArray(new String[0]);
+        }
+    }
+
+    /**
+     * @return true if there are no keys
+     */
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Masks a message.
+     *
+     * @param message
+     *            the message, may be <code>null</code>
+     * @return the masked message, or the same instance if nothing was masked
+     */
+    public String mask(String message) {
+        if (message == null || isEmpty() || message.indexOf('{') < 0) {
+            return message;
+        }
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        int copied = scan(message, buffer);
+        if (buffer.length() == 0) {
+            return message;
+        }
+        buffer.append(message, copied, message.length());
+        String masked = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffers.remove();
+        }
+        return masked;
+    }
+
+    /**
+     * Appends a masked message to a buffer.
+     *
+     * @param message
+     *            the message
+     * @param out
+     *            the buffer to append to
+     * @return true if anything was masked
+     */
+    public boolean mask(CharSequence message, StringBuilder out) {
+        int before = out.length();
+        int copied = isEmpty() ? 0 : scan(message, out);
+        boolean masked = out.length() != before;
+        out.append(message, copied, message.length());
+        return masked;
+    }
+
+    // appends the message up to its last masked value, returning the index up to which it was copied
+    private int scan(CharSequence message, StringBuilder out) {
+        int length = message.length();
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            if (message.charAt(i) != '{') {
+                i++;
+                continue;
+            }
+            long result = parse(message, i, length, false, copied, out);
+            i = (int) (result >>> 32);
+            copied = (int) result;
+        }
+        return copied;
+    }
+
+    /**
+     * Tokenizes the JSON object starting at a <code>{</code>, masking values as it goes. The JSON of an escaped object is read through one level of string escapes, so <code>\"</code> is a
+     * quote.
+     *
+     * @param limit
+     *            the end of the text the object can extend to
+     * @param escaped
+     *            the object is embedded in a string value
+     * @return the index to continue scanning from in the high and the index up to which the message was copied in the low 32 bits
+     */
+    private long parse(CharSequence message, int start, int limit, boolean escaped, int copied, StringBuilder out) {
+        String quote = escaped ? "\\\"" : "\"";
+        // a bit per level, set for objects and clear for arrays
+        long objects = 1L;
+        int depth = 1;
+        // the level from which every value is masked, 0 if none
+        int maskDepth = 0;
+        // the next value is masked
+        boolean masked = false;
+        int state = KEY_OR_END;
+        int i = start + 1;
+        while (true) {
+            i = skipWhitespace(message, i, limit, escaped);
+            char c = read(message, i, limit, escaped);
+            if (c == END) {
+                return pack(i, copied);
+            }
+
+            if ((c == '}' || c == ']') && state != KEY && state != VALUE) {
+                boolean object = (objects & (1L << (depth - 1))) != 0;
+                if (c != (object ? '}' : ']')) {
+                    return pack(i, copied);
+                }
+                depth--;
+                i += width(message, i, escaped);
+                if (depth < maskDepth) {
+                    maskDepth = 0;
+                }
+                if (depth == 0) {
+                    return pack(i, copied);
+                }
+                state = AFTER_VALUE;
+                continue;
+            }
+
+            switch (state) {
+            case KEY_OR_END:
+            case KEY:
+                if (c != '"') {
+                    return pack(i, copied);
+                }
+                int keyEnd = endOfString(message, i, limit, escaped);
+                if (keyEnd < 0) {
+                    // nothing after an unterminated string can be a key
+                    return pack(limit, copied);
+                }
+                int colon = skipWhitespace(message, keyEnd, limit, escaped);
+                if (read(message, colon, limit, escaped) != ':') {
+                    return pack(i, copied);
+                }
+                masked = maskDepth > 0 || isKey(message, i + quote.length(), keyEnd - quote.length(), escaped);
+                i = colon + width(message, colon, escaped);
+                state = VALUE;
+                break;
+
+            case VALUE_OR_END:
+            case VALUE:
+                if (state == VALUE_OR_END) {
+                    masked = maskDepth > 0;
+                }
+                if (c == '"') {
+                    int end = endOfString(message, i, limit, escaped);
+                    if (masked) {
+                        out.append(message, copied, i + quote.length()).append(MASK);
+                        // a truncated value is masked to the end
+                        copied = end < 0 ? limit : end - quote.length();
+                    } else if (!escaped && end >= 0 && end - i > 2 && message.charAt(i + 1) == '{') {
+                        // JSON embedded in a string value
+                        copied = (int) parse(message, i + 1, end - 1, true, copied, out);
+                    }
+                    if (end < 0) {
+                        return pack(limit, copied);
+                    }
+                    i = end;
+                    state = AFTER_VALUE;
+                } else if (c == '{' || c == '[') {
+                    if (depth == MAX_DEPTH) {
+                        return pack(i, copied);
+                    }
+                    if (masked && maskDepth == 0) {
+                        maskDepth = depth + 1;
+                    }
+                    objects = c == '{' ? objects | (1L << depth) : objects & ~(1L << depth);
+                    depth++;
+                    i += width(message, i, escaped);
+                    state = c == '{' ? KEY_OR_END : VALUE_OR_END;
+                } else {
+                    int end = endOfLiteral(message, i, limit, escaped);
+                    if (end == i) {
+                        return pack(i, copied);
+                    }
+                    if (masked) {
+                        out.append(message, copied, i).append(quote).append(MASK).append(quote);
+                        copied = end;
+                    }
+                    i = end;
+                    state = AFTER_VALUE;
+                }
+                break;
+
+            default:
+                if (c != ',') {
+                    return pack(i, copied);
+                }
+                i += width(message, i, escaped);
+                if ((objects & (1L << (depth - 1))) != 0) {
+                    state = KEY;
+                } else {
+                    masked = maskDepth > 0;
+                    state = VALUE;
+                }
+                break;
+            }
+        }
+    }
+
+    private static long pack(int next, int copied) {
+        return ((long) next << 32) | copied;
+    }
+
+    /**
+     * Returns the char at an index, decoding a string escape if the text is escaped.
+     *
+     * @return the char, or {@link #END} at the limit or at an invalid escape
+     */
+    private static char read(CharSequence message, int i, int limit, boolean escaped) {
+        if (i >= limit) {
+            return END;
+        }
+        char c = message.charAt(i);
+        if (!escaped || c != '\\') {
+            return c;
+        }
+        if (i + 1 >= limit) {
+            return END;
+        }
+        char e = message.charAt(i + 1);
+        switch (e) {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int code = i + 5 < limit ? hex(message, i + 2) : -1;
+            return code < 0 ? END : (char) code;
+        default:
+            return e;
+        }
+    }
+
+    // the number of chars read by read(), which must not have returned END
+    private static int width(CharSequence message, int i, boolean escaped) {
+        if (!escaped || message.charAt(i) != '\\') {
+            return 1;
+        }
+        return message.charAt(i + 1) == 'u' ? 6 : 2;
+    }
+
+    private static int skipWhitespace(CharSequence message, int i, int limit, boolean escaped) {
+        while (true) {
+            char c = read(message, i, limit, escaped);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return i;
+            }
+            i += width(message, i, escaped);
+        }
+    }
+
+    /**
+     * @return the index after the closing quote of the string starting at a quote, or -1 if the string is not terminated
+     */
+    private static int endOfString(CharSequence message, int quote, int limit, boolean escaped) {
+        int i = quote + width(message, quote, escaped);
+        while (true) {
+            char c = read(message, i, limit, escaped);
+            if (c == END) {
+                return -1;
+            }
+            i += width(message, i, escaped);
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\') {
+                if (read(message, i, limit, escaped) == END) {
+                    return -1;
+                }
+                i += width(message, i, escaped);
+            }
+        }
+    }
+
+    // the end of a number, true, false or null
+    private static int endOfLiteral(CharSequence message, int i, int limit, boolean escaped) {
+        while (true) {
+            char c = read(message, i, limit, escaped);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-' || c == '+' || c == '.')) {
+                return i;
+            }
+            i += width(message, i, escaped);
+        }
+    }
+
+    // whether the key between start and end, without its quotes, is masked
+    private boolean isKey(CharSequence message, int start, int end, boolean escaped) {
+        for (int i = start; i < end; i++) {
+            if (message.charAt(i) == '\\') {
+                StringBuilder decoded = decodedKeys.get();
+                decoded.setLength(0);
+                if (escaped) {
+                    for (int j = start; j < end; j += width(message, j, true)) {
+                        decoded.append(read(message, j, end, true));
+                    }
+                } else {
+                    decode(message, start, end, decoded);
+                }
+                return matches(decoded, 0, decoded.length());
+            }
+        }
+        return matches(message, start, end);
+    }
+
+    private boolean matches(CharSequence key, int start, int end) {
+        int length = end - start;
+        if (length >= keys.length) {
+            return false;
+        }
+        for (String candidate : keys[length]) {
+            int i = 0;
+            while (i < length && Character.toLowerCase(key.charAt(start + i)) == candidate.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // decodes the escapes of a JSON string, keeping invalid escapes as they are
+    private static void decode(CharSequence message, int start, int end, StringBuilder out) {
+        for (int i = start; i < end; i++) {
+            char c = message.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                out.append(c);
+                continue;
+            }
+            char escaped = message.charAt(++i);
+            switch (escaped) {
+            case 'b':
+                out.append('\b');
+                break;
+            case 'f':
+                out.append('\f');
+                break;
+            case 'n':
+                out.append('\n');
+                break;
+            case 'r':
+                out.append('\r');
+                break;
+            case 't':
+                out.append('\t');
+                break;
+            case 'u':
+                int code = i + 4 < end ? hex(message, i + 1) : -1;
+                if (code < 0) {
+                    out.append('\\').append(escaped);
+                } else {
+                    out.append((char) code);
+                    i += 4;
+                }
+                break;
+            default:
+                out.append(escaped);
+                break;
+            }
+        }
+    }
+
+    // the value of four hex digits, or -1
+    private static int hex(CharSequence message, int start) {
+        int value = 0;
+        for (int i = start; i < start + 4; i++) {
+            int digit = Character.digit(message.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,203 @@
+package org.owasp.security.logging.mask;
+
+/**
+ * Neutralizes the characters that can forge or hide log entries: C0 and C1 control characters other than tab, including NEL, DEL, the Unicode line and paragraph separators, and ANSI escape
+ * sequences. Each unsafe character is either replaced by a fixed character or escaped as <code>\r</code>, <code>\n</code> or a <code>&#92;uXXXX</code> Unicode escape.
+ *
+ * Messages are checked against a lookup table in a single pass, and clean messages are returned as is without allocating.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class LogSanitizer {
+
+    public static final char DEFAULT_REPLACEMENT = '_';
+
+    private static final char ESC = '\u001B';
+
+    private static final char LINE_SEPARATOR = '\u2028';
+    private static final char PARAGRAPH_SEPARATOR = '\u2029';
+
+    // unsafe chars below the end of the C1 range
+    private static final int TABLE_SIZE = 0xA0;
+    private static final boolean[] UNSAFE = new boolean[TABLE_SIZE];
+
+    static {
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            UNSAFE[c] = (c < 0x20 && c != '\t') || c >= 0x7F;
+        }
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final LogSanitizer ESCAPING = new LogSanitizer(true, DEFAULT_REPLACEMENT);
+
+    private final boolean escape;
+
+    private final char replacement;
+
+    private LogSanitizer(boolean escape, char replacement) {
+        this.escape = escape;
+        this.replacement = replacement;
+    }
+
+    /**
+     * @param replacement
+     *            the char to replace each unsafe char or escape sequence with
+     * @return a sanitizer that replaces unsafe chars
+     */
+    public static LogSanitizer replacing(char replacement) {
+        return new LogSanitizer(false, replacement);
+    }
+
+    /**
+     * @return a sanitizer that escapes unsafe chars
+     */
+    public static LogSanitizer escaping() {
+        return ESCAPING;
+    }
+
+    /**
+     * @return true if a char is unsafe in a log
+     */
+    public static boolean isUnsafe(char c) {
+        return c < TABLE_SIZE ? UNSAFE[c] : c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR;
+    }
+
+    /**
+     * Sanitizes a message.
+     *
+     * @param message
+     *            the message, may be <code>null</code>
+     * @return the sanitized message, or the same instance if it was clean
+     */
+    public String sanitize(String message) {
+        if (message == null) {
+            return null;
+        }
+        int first = firstUnsafe(message, 0);
+        if (first < 0) {
+            return message;
+        }
+        StringBuilder out = new StringBuilder(message.length() + 16);
+        out.append(message, 0, first);
+        appendSanitized(message, first, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends a sanitized message to a buffer.
+     *
+     * @param message
+     *            the message
+     * @param out
+     *            the buffer to append to
+     * @return true if anything was changed
+     */
+    public boolean sanitize(CharSequence message, StringBuilder out) {
+        int first = firstUnsafe(message, 0);
+        if (first < 0) {
+            out.append(message);
+            return false;
+        }
+        out.append(message, 0, first);
+        appendSanitized(message, first, out);
+        return true;
+    }
+
+    /**
+     * Sanitizes the end of a buffer in place. Unsafe chars that are replaced one for one are overwritten; the rest of the buffer is only copied once a char needs more or less room.
+     *
+     * @param buf
+     *            the buffer
+     * @param start
+     *            the start of the text to sanitize, which runs to the end of the buffer
+     * @return true if anything was changed
+     */
+    public boolean sanitize(StringBuilder buf, int start) {
+        int first = firstUnsafe(buf, start);
+        if (first < 0) {
+            return false;
+        }
+        int i = first;
+        if (!escape) {
+            for (; i >= 0 && buf.charAt(i) != ESC; i = firstUnsafe(buf, i + 1)) {
+                buf.setCharAt(i, replacement);
+            }
+            if (i < 0) {
+                return true;
+            }
+        }
+        String rest = buf.substring(i);
+        buf.setLength(i);
+        appendSanitized(rest, 0, buf);
+        return true;
+    }
+
+    private static int firstUnsafe(CharSequence message, int from) {
+        for (int i = from, length = message.length(); i < length; i++) {
+            if (isUnsafe(message.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // appends the message from an unsafe char, copying the runs of safe chars in between
+    private void appendSanitized(CharSequence message, int from, StringBuilder out) {
+        int length = message.length();
+        int i = from;
+        while (i < length) {
+            char c = message.charAt(i);
+            if (escape) {
+                appendEscaped(c, out);
+                i++;
+            } else {
+                out.append(replacement);
+                i = c == ESC ? endOfEscapeSequence(message, i) : i + 1;
+            }
+            int next = firstUnsafe(message, i);
+            int end = next < 0 ? length : next;
+            out.append(message, i, end);
+            i = end;
+        }
+    }
+
+    private static void appendEscaped(char c, StringBuilder out) {
+        switch (c) {
+        case '\r':
+            out.append("\\r");
+            break;
+        case '\n':
+            out.append("\\n");
+            break;
+        default:
+            out.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+            break;
+        }
+    }
+
+    /**
+     * Returns the end of the ANSI escape sequence starting at an ESC char: a control sequence is ESC [, parameter and intermediate bytes and a final byte, other sequences are ESC and one char.
+     */
+    private static int endOfEscapeSequence(CharSequence message, int esc) {
+        int length = message.length();
+        int i = esc + 1;
+        if (i >= length) {
+            return i;
+        }
+        if (message.charAt(i) != '[') {
+            return isUnsafe(message.charAt(i)) ? i : i + 1;
+        }
+        for (i++; i < length; i++) {
+            char c = message.charAt(i);
+            if (c >= 0x40 && c <= 0x7E) {
+                return i + 1;
+            }
+            if (c < 0x20 || c > 0x3F) {
+                // not a control sequence byte, the rest is left to the caller
+                return i;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,306 @@
+package org.owasp.security.logging.mask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.owasp.security.logging.util.KeywordMatcher;
+
+/**
+ * Masks the values matched by a set of regular expression rules in a single pass. The rules are compiled into one alternation, so a message is scanned once from left to right however many rules
+ * there are, and nothing is allocated for messages without a match.
+ *
+ * Each rule must start with a capturing group for the part of the match to keep, typically the key; the rest of the match is replaced by {@link #MASK}.
+ *
+ * A rule can name keywords that occur in every match, such as the keys it masks. Messages are then first scanned for all keywords at once, and only the rules whose keywords were found are run;
+ * if none were found the regular expression is not run at all.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class RegexMasker {
+
+    public static final String MASK = "*****";
+
+    // buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    // rule subsets are compiled on demand up to this many rules, beyond it all rules are run
+    private static final int MAX_SUBSET_RULES = 8;
+
+    private final Rules all;
+
+    // rules without keywords, which always run
+    private final long alwaysRun;
+
+    private final KeywordMatcher keywords;
+
+    private final AtomicReferenceArray<Rules> subsets;
+
+    private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private RegexMasker(Rules all, long alwaysRun, KeywordMatcher keywords, AtomicReferenceArray<Rules> subsets) {
+        this.all = all;
+        this.alwaysRun = alwaysRun;
+        this.keywords = keywords;
+        this.subsets = subsets;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return true if there are no rules
+     */
+    public boolean isEmpty() {
+        return all.size() == 0;
+    }
+
+    /**
+     * Masks a message.
+     *
+     * @param message
+     *            the message, may be <code>null</code>
+     * @return the masked message, or the same instance if nothing was masked
+     */
+    public String mask(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        Rules rules = select(message);
+        if (rules == null) {
+            return message;
+        }
+        Matcher matcher = rules.matcher(message);
+        if (!matcher.find()) {
+            return message;
+        }
+
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        appendMasked(message, rules, matcher, buffer);
+        String masked = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffers.remove();
+        }
+        return masked;
+    }
+
+    /**
+     * Appends a masked message to a buffer.
+     *
+     * @param message
+     *            the message
+     * @param out
+     *            the buffer to append to
+     * @return true if anything was masked
+     */
+    public boolean mask(CharSequence message, StringBuilder out) {
+        if (message == null) {
+            return false;
+        }
+        Rules rules = message.length() == 0 ? null : select(message);
+        Matcher matcher = rules == null ? null : rules.matcher(message);
+        if (matcher == null || !matcher.find()) {
+            out.append(message);
+            return false;
+        }
+        appendMasked(message, rules, matcher, out);
+        return true;
+    }
+
+    // the rules that may match the message, or null if none can
+    private Rules select(CharSequence message) {
+        if (keywords == null) {
+            return all.size() == 0 ? null : all;
+        }
+        long selected = alwaysRun | keywords.scan(message);
+        if (selected == 0) {
+            return null;
+        }
+        if (selected == all.bits || subsets == null) {
+            return all;
+        }
+        Rules rules = subsets.get((int) selected);
+        if (rules == null) {
+            rules = all.subset(selected);
+            subsets.set((int) selected, rules);
+        }
+        return rules;
+    }
+
+    // appends the message masking the match the matcher is on and every following match
+    private static void appendMasked(CharSequence message, Rules rules, Matcher matcher, StringBuilder out) {
+        int last = 0;
+        do {
+            int keepEnd = matcher.end(rules.keepGroupOf(matcher));
+            out.append(message, last, keepEnd).append(MASK);
+            last = matcher.end();
+        } while (matcher.find());
+        out.append(message, last, message.length());
+    }
+
+    /**
+     * A set of rules compiled into one alternation.
+     */
+    private static final class Rules {
+
+        private final List<String> regexes;
+
+        private final int flags;
+
+        // the rules in this set, as bits of their index
+        private final long bits;
+
+        // for each rule, the group of the whole rule and the group of the part to keep
+        private final int[] ruleGroups;
+        private final int[] keepGroups;
+
+        private final ThreadLocal<Matcher> matchers;
+
+        Rules(List<String> regexes, int flags, long bits) {
+            this.regexes = regexes;
+            this.flags = flags;
+            this.bits = bits;
+
+            StringBuilder alternation = new StringBuilder();
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < regexes.size(); i++) {
+                if (i < 64 && (bits & (1L << i)) == 0) {
+                    continue;
+                }
+                indexes.add(i);
+            }
+            ruleGroups = new int[indexes.size()];
+            keepGroups = new int[indexes.size()];
+            int group = 1;
+            for (int i = 0; i < indexes.size(); i++) {
+                String rule = regexes.get(indexes.get(i));
+                if (i > 0) {
+                    alternation.append('|');
+                }
+                alternation.append('(').append(rule);
+                if ((flags & Pattern.COMMENTS) != 0) {
+                    // end a trailing comment before closing the group
+                    alternation.append('\n');
+                }
+                alternation.append(')');
+                ruleGroups[i] = group;
+                keepGroups[i] = group + 1;
+                group += 1 + Pattern.compile(rule, flags).matcher("").groupCount();
+            }
+
+            final Pattern pattern = Pattern.compile(alternation.toString(), flags);
+            matchers = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return pattern.matcher("");
+                }
+            };
+        }
+
+        int size() {
+            return ruleGroups.length;
+        }
+
+        Matcher matcher(CharSequence message) {
+            return matchers.get().reset(message);
+        }
+
+        Rules subset(long selected) {
+            return new Rules(regexes, flags, selected);
+        }
+
+        int keepGroupOf(Matcher matcher) {
+            for (int i = 0; i < ruleGroups.length; i++) {
+                if (matcher.start(ruleGroups[i]) != -1) {
+                    return keepGroups[i];
+                }
+            }
+            throw new IllegalStateException("No rule matched");
+        }
+    }
+
+    /**
+     * Collects rules for a {@link RegexMasker}. A builder can be reused to build several maskers.
+     */
+    public static final class Builder {
+
+        private final List<String> rules = new ArrayList<>();
+
+        private final List<String[]> ruleKeywords = new ArrayList<>();
+
+        private int flags;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the {@link Pattern} flags all rules are compiled with.
+         *
+         * @param flags
+         *            the flags, such as {@link Pattern#COMMENTS}
+         * @return this builder
+         */
+        public Builder flags(int flags) {
+            this.flags = flags;
+            return this;
+        }
+
+        /**
+         * Adds a rule.
+         *
+         * @param regex
+         *            the regular expression, starting with a capturing group for the part to keep
+         * @param keywords
+         *            literals of which at least one occurs in every match of the rule, or none if the rule must always run
+         * @return this builder
+         */
+        public Builder addRule(String regex, String... keywords) {
+            Pattern rule = Pattern.compile(regex, flags);
+            if (!regex.startsWith("(") || regex.startsWith("(?") || rule.matcher("").groupCount() == 0) {
+                throw new IllegalArgumentException("Rule must start with a capturing group: " + regex);
+            }
+            rules.add(regex);
+            ruleKeywords.add(keywords);
+            return this;
+        }
+
+        public RegexMasker build() {
+            List<String> regexes = new ArrayList<>(rules);
+            long allBits = regexes.size() >= 64 ? -1L : (1L << regexes.size()) - 1;
+            Rules all = new Rules(regexes, flags, allBits);
+
+            // keywords only help if they can select the rules to run
+            if (regexes.size() > KeywordMatcher.MAX_GROUPS) {
+                return new RegexMasker(all, allBits, null, null);
+            }
+            long alwaysRun = 0L;
+            boolean anyKeywords = false;
+            KeywordMatcher.Builder keywords = KeywordMatcher.builder();
+            for (int i = 0; i < regexes.size(); i++) {
+                String[] literals = ruleKeywords.get(i);
+                if (literals == null || literals.length == 0) {
+                    alwaysRun |= 1L << i;
+                    continue;
+                }
+                for (String literal : literals) {
+                    keywords.add(literal, i);
+                }
+                anyKeywords = true;
+            }
+            if (!anyKeywords) {
+                return new RegexMasker(all, allBits, null, null);
+            }
+            AtomicReferenceArray<Rules> subsets = regexes.size() <= MAX_SUBSET_RULES ? new AtomicReferenceArray<Rules>(1 << regexes.size()) : null;
+            return new RegexMasker(all, alwaysRun, keywords.build(), subsets);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.owasp.security.logging.mask;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.owasp.security.logging.Sensitive;
+import org.owasp.security.logging.util.KeywordMatcher;
+
+/**
+ * A process-wide dictionary of secret values known at runtime, such as a loaded database password or keys fetched from a vault, whose every occurrence is masked by the secret masking
+ * converters:
+ *
+ * <pre>
+ * SecretDictionary.register(dbPassword);
+ * ...
+ * SecretDictionary.deregister(dbPassword);
+ * </pre>
+ *
+ * The secrets are compiled into a {@link KeywordMatcher} that is rebuilt and swapped in whenever the dictionary changes. Masking reads the current matcher without locking and finds all secrets in a
+ * single pass over the message; overlapping and adjacent occurrences are masked together by one {@link #MASK}. Messages without a secret are returned as is without allocating.
+ */
+public final class SecretDictionary {
+
+    public static final String MASK = Sensitive.MASK;
+
+    /**
+     * Shortest secret that can be registered, shorter values would mask ordinary text.
+     */
+    public static final int MIN_LENGTH = 4;
+
+    // buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    // guarded by itself
+    private static final Set<String> SECRETS = new LinkedHashSet<>();
+
+    // the matcher for the current secrets, null if there are none
+    private static volatile KeywordMatcher matcher;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private SecretDictionary() {
+    }
+
+    /**
+     * Registers a secret.
+     *
+     * @param secret
+     *            the secret, at least {@link #MIN_LENGTH} chars long
+     * @return true if it was not registered yet
+     */
+    public static boolean register(String secret) {
+        if (secret == null || secret.length() < MIN_LENGTH) {
+            throw new IllegalArgumentException("Secrets must have at least " + MIN_LENGTH + " chars");
+        }
+        synchronized (SECRETS) {
+            if (!SECRETS.add(secret)) {
+                return false;
+            }
+            rebuild();
+            return true;
+        }
+    }
+
+    /**
+     * Deregisters a secret, which is no longer masked.
+     *
+     * @param secret
+     *            the secret
+     * @return true if it was registered
+     */
+    public static boolean deregister(String secret) {
+        synchronized (SECRETS) {
+            if (!SECRETS.remove(secret)) {
+                return false;
+            }
+            rebuild();
+            return true;
+        }
+    }
+
+    /**
+     * Deregisters all secrets.
+     */
+    public static void clear() {
+        synchronized (SECRETS) {
+            SECRETS.clear();
+            rebuild();
+        }
+    }
+
+    /**
+     * @return the number of registered secrets
+     */
+    public static int size() {
+        synchronized (SECRETS) {
+            return SECRETS.size();
+        }
+    }
+
+    // called holding the lock, so matchers are published in the order of the changes
+    private static void rebuild() {
+        if (SECRETS.isEmpty()) {
+            matcher = null;
+            return;
+        }
+        KeywordMatcher.Builder builder = KeywordMatcher.builder();
+        for (String secret : SECRETS) {
+            builder.add(secret, 0);
+        }
+        matcher = builder.build();
+    }
+
+    /**
+     * Masks the secrets in a message.
+     *
+     * @param message
+     *            the message, may be <code>null</code>
+     * @return the masked message, or the same instance if it contains no secret
+     */
+    public static String mask(String message) {
+        KeywordMatcher current = matcher;
+        if (message == null || current == null) {
+            return message;
+        }
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        int copied = scan(current, message, buffer);
+        if (copied < 0) {
+            return message;
+        }
+        buffer.append(message, copied, message.length());
+        String masked = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFERS.remove();
+        }
+        return masked;
+    }
+
+    /**
+     * Appends a message to a buffer with its secrets masked.
+     *
+     * @param message
+     *            the message
+     * @param out
+     *            the buffer to append to
+     * @return true if anything was masked
+     */
+    public static boolean mask(CharSequence message, StringBuilder out) {
+        KeywordMatcher current = matcher;
+        int copied = current == null ? -1 : scan(current, message, out);
+        out.append(message, Math.max(copied, 0), message.length());
+        return copied >= 0;
+    }
+
+    /**
+     * Masks the secrets at the end of a buffer in place. The text is only copied if it contains a secret.
+     *
+     * @param buf
+     *            the buffer
+     * @param start
+     *            the start of the text to mask, which runs to the end of the buffer
+     * @return true if anything was masked
+     */
+    public static boolean mask(StringBuilder buf, int start) {
+        KeywordMatcher current = matcher;
+        if (current == null) {
+            return false;
+        }
+        if (!contains(current, buf, start)) {
+            return false;
+        }
+        String rest = buf.substring(start);
+        buf.setLength(start);
+        int copied = scan(current, rest, buf);
+        buf.append(rest, copied, rest.length());
+        return true;
+    }
+
+    /**
+     * Appends the message up to the end of its last secret, masking every secret.
+     *
+     * @return the index up to which the message was copied, or -1 if it contains no secret and nothing was appended
+     */
+    private static int scan(KeywordMatcher matcher, CharSequence message, StringBuilder out) {
+        int copied = -1;
+        // the pending run of overlapping or adjacent secrets
+        int runStart = -1;
+        int runEnd = -1;
+        int state = KeywordMatcher.START;
+        for (int i = 0, length = message.length(); i < length; i++) {
+            state = matcher.next(state, message.charAt(i));
+            int matchLength = matcher.matchLength(state);
+            if (matchLength == 0) {
+                continue;
+            }
+            int matchStart = i + 1 - matchLength;
+            if (runStart >= 0 && matchStart <= runEnd) {
+                runStart = Math.min(runStart, matchStart);
+                runEnd = i + 1;
+                continue;
+            }
+            if (runStart >= 0) {
+                copied = appendMasked(message, copied, runStart, runEnd, out);
+            }
+            runStart = matchStart;
+            runEnd = i + 1;
+        }
+        if (runStart >= 0) {
+            copied = appendMasked(message, copied, runStart, runEnd, out);
+        }
+        return copied;
+    }
+
+    // appends the text before a run of secrets and the mask, returning the end of the run
+    private static int appendMasked(CharSequence message, int copied, int runStart, int runEnd, StringBuilder out) {
+        int from = Math.max(copied, 0);
+        // the part of a secret that overlaps a run already masked is not masked twice
+        out.append(message, from, Math.max(runStart, from));
+        if (runEnd > from) {
+            out.append(MASK);
+        }
+        return Math.max(runEnd, from);
+    }
+
+    private static boolean contains(KeywordMatcher matcher, CharSequence text, int start) {
+        int state = KeywordMatcher.START;
+        for (int i = start, length = text.length(); i < length; i++) {
+            state = matcher.next(state, text.charAt(i));
+            if (matcher.matchLength(state) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
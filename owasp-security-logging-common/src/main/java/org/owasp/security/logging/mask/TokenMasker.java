@@ -0,0 +1,260 @@
+package org.owasp.security.logging.mask;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.owasp.security.logging.Sensitive;
+
+/**
+ * Replaces values with short keyed tokens, so masked values can still be correlated: the same value always gets the same token, and without the key a token cannot be traced back to its value.
+ * A token is {@link #PREFIX} followed by the first hex digits of the HMAC-SHA256 of the value.
+ *
+ * Each thread keeps its own initialized {@link Mac}, buffers and cache of the tokens of recently masked values, so threads never wait for each other and masking a recent value is a map lookup.
+ * <code>null</code> has a token of its own, distinct from the token of <code>"null"</code>.
+ *
+ * Instances are thread-safe.
+ */
+public final class TokenMasker {
+
+    public static final String ALGORITHM = "HmacSHA256";
+
+    public static final String PREFIX = "hmac:";
+
+    /**
+     * Default name of the property or environment variable holding the key.
+     */
+    public static final String DEFAULT_KEY_NAME = "SECURITY_LOGGING_MASK_KEY";
+
+    public static final int DEFAULT_TOKEN_LENGTH = 12;
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // longest value encoded into the per-thread buffer, longer values are encoded into a new array
+    private static final int MAX_BUFFERED_LENGTH = 1024;
+
+    private final SecretKeySpec key;
+
+    private final Mac prototype;
+
+    private final int tokenLength;
+
+    // the number of recent tokens each thread caches
+    private final int cacheSize;
+
+    private final String nullToken;
+
+    private final ThreadLocal<State> states = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(newMac(), cacheSize);
+        }
+    };
+
+    /**
+     * Creates a masker.
+     *
+     * @param key
+     *            the HMAC key
+     * @param tokenLength
+     *            the number of hex digits of a token, from 8 to 64
+     * @param cacheSize
+     *            the number of recent tokens each thread caches
+     */
+    public TokenMasker(byte[] key, int tokenLength, int cacheSize) {
+        if (key == null || key.length == 0 || tokenLength < 8 || tokenLength > 64 || cacheSize < 0) {
+            throw new IllegalArgumentException("Invalid key, token length " + tokenLength + " or cache size " + cacheSize);
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.prototype = initMac(this.key);
+        this.tokenLength = tokenLength;
+        this.cacheSize = cacheSize;
+        // 0xFF never occurs in UTF-8, so no string has this token
+        State state = new State(newMac(), 0);
+        this.nullToken = new String(state.token, 0, encode(new byte[] { (byte) 0xFF }, 1, state));
+    }
+
+    /**
+     * Creates a masker with the default token length and cache size.
+     *
+     * @param key
+     *            the HMAC key
+     */
+    public TokenMasker(byte[] key) {
+        this(key, DEFAULT_TOKEN_LENGTH, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a masker with a random key, whose tokens can only be correlated within the running process.
+     *
+     * @return the masker
+     */
+    public static TokenMasker withRandomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new TokenMasker(key);
+    }
+
+    /**
+     * Looks up a key in the system properties, then in the environment.
+     *
+     * @param name
+     *            the name of the property or environment variable
+     * @return the key, or <code>null</code> if it is not set
+     */
+    public static byte[] lookupKey(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        String value = System.getProperty(name);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(name);
+        }
+        return value == null || value.isEmpty() ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the token of a value.
+     *
+     * @param value
+     *            the value, may be <code>null</code>; the token of a {@link Sensitive} value is the token of the value it wraps
+     * @return the token
+     */
+    public String token(Object value) {
+        Object unwrapped = value instanceof Sensitive ? ((Sensitive) value).getValue() : value;
+        if (unwrapped == null) {
+            return nullToken;
+        }
+        String string = unwrapped.toString();
+        State state = states.get();
+        String token = state.recent.get(string);
+        if (token == null) {
+            byte[] bytes = utf8(string, state);
+            token = new String(state.token, 0, encode(bytes, state.length, state));
+            state.recent.put(string, token);
+        }
+        return token;
+    }
+
+    /**
+     * Appends the token of a value to a buffer.
+     *
+     * @param value
+     *            the value, may be <code>null</code>
+     * @param out
+     *            the buffer to append to
+     */
+    public void appendToken(Object value, StringBuilder out) {
+        out.append(token(value));
+    }
+
+    // computes the token of some bytes into the token buffer of the state, returning its length
+    private int encode(byte[] bytes, int length, State state) {
+        state.mac.update(bytes, 0, length);
+        byte[] digest = state.digest;
+        try {
+            state.mac.doFinal(digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " failed", e);
+        }
+
+        char[] token = state.token;
+        int n = PREFIX.length();
+        PREFIX.getChars(0, n, token, 0);
+        for (int i = 0; i < tokenLength; i++) {
+            int b = digest[i >> 1];
+            token[n++] = HEX[(i & 1) == 0 ? (b >> 4) & 0xF : b & 0xF];
+        }
+        return n;
+    }
+
+    // encodes a value as UTF-8 into the byte buffer of the state when it fits
+    private static byte[] utf8(String value, State state) {
+        if (value.length() > MAX_BUFFERED_LENGTH) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            state.length = bytes.length;
+            return bytes;
+        }
+        byte[] bytes = state.bytes;
+        int n = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[n++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[n++] = (byte) (0xC0 | (c >> 6));
+                bytes[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint((char) c, value.charAt(++i));
+                bytes[n++] = (byte) (0xF0 | (cp >> 18));
+                bytes[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate((char) c)) {
+                // unpaired surrogate, encoded as '?' like String.getBytes
+                bytes[n++] = '?';
+            } else {
+                bytes[n++] = (byte) (0xE0 | (c >> 12));
+                bytes[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        state.length = n;
+        return bytes;
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return initMac(key);
+        }
+    }
+
+    private static Mac initMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * The Mac and buffers of a thread.
+     */
+    private static final class State {
+
+        private final Mac mac;
+
+        private final byte[] bytes = new byte[MAX_BUFFERED_LENGTH * 3];
+
+        private int length;
+
+        private final byte[] digest = new byte[32];
+
+        private final char[] token = new char[PREFIX.length() + 64];
+
+        private final Map<String, String> recent;
+
+        State(Mac mac, final int cacheSize) {
+            this.mac = mac;
+            this.recent = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+    }
+}
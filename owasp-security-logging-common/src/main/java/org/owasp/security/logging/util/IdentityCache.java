@@ -0,0 +1,61 @@
+package org.owasp.security.logging.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Small copy-on-write cache keyed by object identity. Lookups are lock-free and do not allocate; every insert copies the backing map, so this is only suitable for a small and stable key space
+ * such as the set of markers an application logs with. Once the cache holds <code>maxSize</code> entries further inserts are ignored.
+ *
+ * @param <K>
+ *            type of the keys, compared by identity
+ * @param <V>
+ *            type of the cached values
+ */
+public class IdentityCache<K, V> {
+
+    private final int maxSize;
+
+    private volatile Map<K, V> entries = new IdentityHashMap<>();
+
+    public IdentityCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value cached for this exact instance.
+     *
+     * @param key
+     *            the key instance
+     * @return the cached value, or <code>null</code> if there is none
+     */
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches a value for this exact instance, unless the cache is full.
+     *
+     * @param key
+     *            the key instance
+     * @param value
+     *            the value to cache
+     */
+    public synchronized void put(K key, V value) {
+        Map<K, V> current = entries;
+        if (current.size() >= maxSize || current.get(key) == value) {
+            return;
+        }
+        Map<K, V> copy = new IdentityHashMap<>(current);
+        copy.put(key, value);
+        entries = copy;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries = new IdentityHashMap<>();
+    }
+}
@@ -0,0 +1,170 @@
+package org.owasp.security.logging.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Token bucket rate limiter with one bucket per key. Each bucket is a single theoretical arrival time updated with compare-and-set (the generic cell rate algorithm), so permits are taken without
+ * locks, and the key table itself is a striped {@link ConcurrentHashMap}.
+ *
+ * The number of keys is bounded. When the table is full, buckets that have refilled and have nothing left to report are evicted; keys that still do not fit share the {@link #OVERFLOW_KEY} bucket,
+ * so rotating keys cannot grow the table without limit.
+ *
+ * Denied permits are counted per key and can be drained with {@link #drainSuppressed()} to report them.
+ */
+public class KeyedRateLimiter {
+
+    /**
+     * Key of the bucket shared by all keys that do not fit in the table.
+     */
+    public static final String OVERFLOW_KEY = "*";
+
+    private static final AtomicLongFieldUpdater<Bucket> ARRIVAL = AtomicLongFieldUpdater.newUpdater(Bucket.class, "arrival");
+
+    private static final AtomicLongFieldUpdater<Bucket> SUPPRESSED = AtomicLongFieldUpdater.newUpdater(Bucket.class, "suppressed");
+
+    private final ConcurrentMap<String, Bucket> buckets;
+
+    private final Bucket overflow = new Bucket();
+
+    private final int maxKeys;
+
+    // nanoseconds between two permits, and how far ahead a burst may borrow
+    private final long interval;
+    private final long tolerance;
+
+    private final AtomicLong lastEviction = new AtomicLong();
+
+    /**
+     * @param permitsPerSecond
+     *            sustained rate of permits per key
+     * @param burst
+     *            number of permits a key may take at once
+     * @param maxKeys
+     *            maximum number of keys to track
+     */
+    public KeyedRateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Rate, burst and key limit must be positive");
+        }
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.tolerance = interval * (burst - 1);
+        this.maxKeys = maxKeys;
+        this.buckets = new ConcurrentHashMap<>(Math.min(maxKeys, 1024));
+        long now = System.nanoTime();
+        this.overflow.arrival = now;
+        this.lastEviction.set(now);
+    }
+
+    /**
+     * Takes a permit for a key.
+     *
+     * @param key
+     *            the key to limit
+     * @return true if a permit was available, false if the event should be suppressed
+     */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    boolean tryAcquire(String key, long now) {
+        Bucket bucket = bucketOf(key, now);
+        while (true) {
+            long arrival = bucket.arrival;
+            long next = (arrival - now < 0 ? now : arrival) + interval;
+            if (next - now > tolerance + interval) {
+                SUPPRESSED.incrementAndGet(bucket);
+                keepSuppressed(key, bucket, now);
+                return false;
+            }
+            if (ARRIVAL.compareAndSet(bucket, arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    private Bucket bucketOf(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evictIdle(now);
+            if (buckets.size() >= maxKeys) {
+                return overflow;
+            }
+        }
+        Bucket created = new Bucket();
+        created.arrival = now;
+        bucket = buckets.putIfAbsent(key, created);
+        return bucket == null ? created : bucket;
+    }
+
+    // drops buckets that have refilled completely and have no suppressed events, at most once per interval
+    private void evictIdle(long now) {
+        long last = lastEviction.get();
+        if (now - last < interval || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            String key = entry.getKey();
+            Bucket bucket = entry.getValue();
+            if (bucket.arrival - now <= 0 && bucket.suppressed == 0 && buckets.remove(key, bucket)) {
+                // an event may have been suppressed between the check and the removal
+                keepSuppressed(key, bucket, now);
+            }
+        }
+    }
+
+    /**
+     * Moves the suppressed count of a bucket that is no longer in the table to the bucket now used for its key. Both the thread counting an event and the thread evicting the bucket call this after
+     * their change, so a count is never lost with the evicted bucket.
+     */
+    private void keepSuppressed(String key, Bucket bucket, long now) {
+        while (bucket != overflow && buckets.get(key) != bucket) {
+            long count = SUPPRESSED.getAndSet(bucket, 0);
+            if (count == 0) {
+                return;
+            }
+            bucket = bucketOf(key, now);
+            SUPPRESSED.addAndGet(bucket, count);
+        }
+    }
+
+    /**
+     * Returns the number of suppressed events per key since the last call, and resets the counts.
+     *
+     * @return suppressed event counts by key, only for keys with suppressed events
+     */
+    public Map<String, Long> drainSuppressed() {
+        Map<String, Long> drained = new LinkedHashMap<>();
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            long count = SUPPRESSED.getAndSet(entry.getValue(), 0);
+            if (count > 0) {
+                drained.put(entry.getKey(), count);
+            }
+        }
+        long count = SUPPRESSED.getAndSet(overflow, 0);
+        if (count > 0) {
+            drained.put(OVERFLOW_KEY, count);
+        }
+        return drained;
+    }
+
+    /**
+     * @return the number of keys currently tracked
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    static final class Bucket {
+        volatile long arrival;
+        volatile long suppressed;
+    }
+}
@@ -0,0 +1,227 @@
+package org.owasp.security.logging.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Finds any of a set of keywords in a text in a single pass, using an Aho-Corasick automaton compiled into a transition table. Each keyword belongs to a group, and a scan reports the groups with a
+ * keyword in the text as a bit mask.
+ *
+ * To locate the keywords, a text can also be stepped through char by char with {@link #next(int, char)}, and {@link #matchLength(int)} tells the length of the longest keyword that ends at each
+ * char.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class KeywordMatcher {
+
+    /**
+     * Maximum number of groups.
+     */
+    public static final int MAX_GROUPS = 64;
+
+    /**
+     * The state before the first char of a text.
+     */
+    public static final int START = 0;
+
+    private static final int ASCII = 128;
+
+    // symbol of each ASCII char, and of the other chars used in keywords; symbol 0 is any other char
+    private final int[] asciiSymbols;
+    private final char[] otherChars;
+    private final int[] otherSymbols;
+
+    private final int width;
+
+    // transition table, state * width + symbol, groups recognized in each state and length of the longest keyword recognized
+    private final int[] transitions;
+    private final long[] groups;
+    private final int[] lengths;
+
+    private KeywordMatcher(int[] asciiSymbols, char[] otherChars, int[] otherSymbols, int width, int[] transitions, long[] groups, int[] lengths) {
+        this.asciiSymbols = asciiSymbols;
+        this.otherChars = otherChars;
+        this.otherSymbols = otherSymbols;
+        this.width = width;
+        this.transitions = transitions;
+        this.groups = groups;
+        this.lengths = lengths;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Scans a text for keywords.
+     *
+     * @param text
+     *            the text to scan
+     * @return the bits of the groups with a keyword in the text, 0 if there are none
+     */
+    public long scan(CharSequence text) {
+        long found = 0L;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * width + symbol(text.charAt(i))];
+            found |= groups[state];
+        }
+        return found;
+    }
+
+    /**
+     * Reads one char of a text.
+     *
+     * @param state
+     *            the state before the char, {@link #START} for the first char
+     * @param c
+     *            the char
+     * @return the state after the char
+     */
+    public int next(int state, char c) {
+        return transitions[state * width + symbol(c)];
+    }
+
+    /**
+     * @param state
+     *            a state returned by {@link #next(int, char)}
+     * @return the length of the longest keyword ending at the char that led to the state, 0 if none does
+     */
+    public int matchLength(int state) {
+        return lengths[state];
+    }
+
+    private int symbol(char c) {
+        if (c < ASCII) {
+            return asciiSymbols[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherSymbols[index];
+    }
+
+    /**
+     * Collects the keywords of a {@link KeywordMatcher}.
+     */
+    public static final class Builder {
+
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> keywordGroups = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a keyword.
+         *
+         * @param keyword
+         *            the keyword, not empty
+         * @param group
+         *            the group of the keyword, from 0 to 63
+         * @return this builder
+         */
+        public Builder add(String keyword, int group) {
+            if (keyword == null || keyword.isEmpty() || group < 0 || group >= MAX_GROUPS) {
+                throw new IllegalArgumentException("Invalid keyword [" + keyword + "] or group " + group);
+            }
+            keywords.add(keyword);
+            keywordGroups.add(group);
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            // number the chars used in keywords
+            TreeSet<Character> chars = new TreeSet<>();
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    chars.add(keyword.charAt(i));
+                }
+            }
+            int[] asciiSymbols = new int[ASCII];
+            List<Character> others = new ArrayList<>();
+            int symbol = 1;
+            for (char c : chars) {
+                if (c < ASCII) {
+                    asciiSymbols[c] = symbol++;
+                } else {
+                    others.add(c);
+                }
+            }
+            char[] otherChars = new char[others.size()];
+            int[] otherSymbols = new int[others.size()];
+            for (int i = 0; i < otherChars.length; i++) {
+                otherChars[i] = others.get(i);
+                otherSymbols[i] = symbol++;
+            }
+            int width = symbol;
+            KeywordMatcher symbols = new KeywordMatcher(asciiSymbols, otherChars, otherSymbols, width, null, null, null);
+
+            // build the trie, -1 marks a missing edge
+            List<int[]> trie = new ArrayList<>();
+            List<Long> output = new ArrayList<>();
+            List<Integer> outputLength = new ArrayList<>();
+            trie.add(newState(width));
+            output.add(0L);
+            outputLength.add(0);
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int s = symbols.symbol(keyword.charAt(i));
+                    if (trie.get(state)[s] < 0) {
+                        trie.get(state)[s] = trie.size();
+                        trie.add(newState(width));
+                        output.add(0L);
+                        outputLength.add(0);
+                    }
+                    state = trie.get(state)[s];
+                }
+                output.set(state, output.get(state) | (1L << keywordGroups.get(k)));
+                outputLength.set(state, keyword.length());
+            }
+
+            // complete the transitions along the failure links, breadth first
+            int[] transitions = new int[trie.size() * width];
+            long[] groups = new long[trie.size()];
+            int[] lengths = new int[trie.size()];
+            int[] failure = new int[trie.size()];
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int s = 0; s < width; s++) {
+                int next = trie.get(0)[s];
+                if (next < 0) {
+                    transitions[s] = 0;
+                } else {
+                    transitions[s] = next;
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+            groups[0] = output.get(0);
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                groups[state] = output.get(state) | groups[failure[state]];
+                lengths[state] = Math.max(outputLength.get(state), lengths[failure[state]]);
+                for (int s = 0; s < width; s++) {
+                    int next = trie.get(state)[s];
+                    if (next < 0) {
+                        transitions[state * width + s] = transitions[failure[state] * width + s];
+                    } else {
+                        transitions[state * width + s] = next;
+                        failure[next] = transitions[failure[state] * width + s];
+                        queue.add(next);
+                    }
+                }
+            }
+            return new KeywordMatcher(asciiSymbols, otherChars, otherSymbols, width, transitions, groups, lengths);
+        }
+
+        private static int[] newState(int width) {
+            int[] state = new int[width];
+            Arrays.fill(state, -1);
+            return state;
+        }
+    }
+}
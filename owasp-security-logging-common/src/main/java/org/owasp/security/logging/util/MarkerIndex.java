@@ -0,0 +1,120 @@
+package org.owasp.security.logging.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.Marker;
+
+/**
+ * Immutable assignment of bits to marker names. Built-in {@link SecurityMarkers} keep their own bits and any other names get one of the remaining bits, so the membership of an event marker in
+ * every indexed name can be computed with a single walk of the marker graph and then tested with plain bit operations.
+ *
+ * At most 64 names, including the built-in ones, can be indexed.
+ */
+public final class MarkerIndex {
+
+    private static final int MAX_BITS = 64;
+
+    private final Map<String, Long> customBits;
+
+    private MarkerIndex(Map<String, Long> customBits) {
+        this.customBits = customBits;
+    }
+
+    /**
+     * Assigns bits to a set of marker names.
+     *
+     * @param markerNames
+     *            names of the markers to index
+     * @return the index
+     * @throws IllegalArgumentException
+     *             if there are more names than bits
+     */
+    public static MarkerIndex build(Collection<String> markerNames) {
+        // custom names take the bits not used by the built-in markers
+        long used = SecurityMarkers.SECURITY_MASK | SecurityMarkers.CLASSIFIED_MASK | SecurityMarkers.SECURITY_EVENT_MASK | SecurityMarkers.EVENT_SUCCESS_MASK
+                | SecurityMarkers.EVENT_FAILURE_MASK | SecurityMarkers.EVENT_UNSPECIFIED_MASK;
+
+        Map<String, Long> customBits = new HashMap<>();
+        int next = 0;
+        for (String name : markerNames) {
+            if (SecurityMarkers.maskOf(name) != 0 || customBits.containsKey(name)) {
+                continue;
+            }
+            while (next < MAX_BITS && (used & (1L << next)) != 0) {
+                next++;
+            }
+            if (next == MAX_BITS) {
+                throw new IllegalArgumentException("Too many markers to index, at most " + MAX_BITS + " are supported");
+            }
+            customBits.put(name, 1L << next);
+            used |= 1L << next;
+        }
+        return new MarkerIndex(customBits.isEmpty() ? Collections.<String, Long> emptyMap() : customBits);
+    }
+
+    /**
+     * Returns the bit of a single marker name, without looking at references.
+     *
+     * @param markerName
+     *            the marker name
+     * @return the bit of the name, or 0 if it is not indexed
+     */
+    public long bitOf(String markerName) {
+        long bit = SecurityMarkers.maskOf(markerName);
+        if (bit == 0) {
+            Long custom = customBits.get(markerName);
+            if (custom != null) {
+                bit = custom;
+            }
+        }
+        return bit;
+    }
+
+    /**
+     * Returns the bits of a set of marker names.
+     *
+     * @param markerNames
+     *            the marker names
+     * @return the combined bits of the indexed names
+     */
+    public long maskOf(Collection<String> markerNames) {
+        long mask = 0L;
+        for (String name : markerNames) {
+            mask |= bitOf(name);
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the bits of a marker and all markers it references, walking the marker graph once.
+     *
+     * @param marker
+     *            the marker of a logging event, may be <code>null</code>
+     * @return the combined bits of the indexed markers found
+     */
+    public long maskOf(Marker marker) {
+        if (marker == null) {
+            return 0L;
+        }
+        if (customBits.isEmpty()) {
+            // only built-in markers are indexed, their bits may be precomputed
+            return SecurityMarkers.maskOf(marker);
+        }
+        return walk(marker);
+    }
+
+    private long walk(Marker marker) {
+        long mask = bitOf(marker.getName());
+        if (marker.hasReferences()) {
+            for (Iterator<?> it = marker.iterator(); it.hasNext();) {
+                mask |= walk((Marker) it.next());
+            }
+        }
+        return mask;
+    }
+}
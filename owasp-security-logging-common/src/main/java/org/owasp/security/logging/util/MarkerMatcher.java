@@ -0,0 +1,101 @@
+package org.owasp.security.logging.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.Marker;
+
+/**
+ * Immutable set of marker names to match against the marker of a logging event. Built-in {@link SecurityMarkers} are matched with a single AND against their bits; any other names are looked up
+ * in a hashed set while walking the event marker and its references.
+ *
+ * Instances are created once, typically when a filter starts, and are safe to share between threads.
+ */
+public final class MarkerMatcher {
+
+    private final long mask;
+
+    private final Set<String> names;
+
+    private MarkerMatcher(long mask, Set<String> names) {
+        this.mask = mask;
+        this.names = names;
+    }
+
+    /**
+     * Compiles a set of marker names into a matcher.
+     *
+     * @param markerNames
+     *            names of the markers to match
+     * @return a matcher for these names
+     */
+    public static MarkerMatcher compile(Collection<String> markerNames) {
+        long mask = 0L;
+        Set<String> names = new HashSet<>();
+        for (String name : markerNames) {
+            long bit = SecurityMarkers.maskOf(name);
+            if (bit == 0) {
+                names.add(name);
+            }
+            mask |= bit;
+        }
+        return new MarkerMatcher(mask, names.isEmpty() ? Collections.<String> emptySet() : Collections.unmodifiableSet(names));
+    }
+
+    /**
+     * Checks whether a marker, or any marker it references, is in this set.
+     *
+     * @param marker
+     *            the marker of a logging event, may be <code>null</code>
+     * @return true if the marker matches
+     */
+    public boolean matches(Marker marker) {
+        if (marker == null) {
+            return false;
+        }
+
+        // check the built-in markers with a single AND
+        if ((SecurityMarkers.maskOf(marker) & mask) != 0) {
+            return true;
+        }
+
+        // only walk the marker graph if there are other markers to match
+        return !names.isEmpty() && containsName(marker);
+    }
+
+    private boolean containsName(Marker marker) {
+        if (names.contains(marker.getName())) {
+            return true;
+        }
+        if (marker.hasReferences()) {
+            for (Iterator<?> it = marker.iterator(); it.hasNext();) {
+                if (containsName((Marker) it.next())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the bits of the built-in markers in this set
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * @return the names in this set that are not built-in markers
+     */
+    public Set<String> getCustomNames() {
+        return names;
+    }
+
+    public boolean isEmpty() {
+        return mask == 0 && names.isEmpty();
+    }
+}
@@ -0,0 +1,228 @@
+package org.owasp.security.logging.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Detects repeats of a key within a fixed time window. The first occurrence of a key opens a window; further occurrences until the window closes are repeats and are only counted. Closed windows
+ * with repeats are returned by {@link #expire(long)} so they can be reported.
+ *
+ * The table is split into lock-striped segments with a fixed capacity each, so memory stays constant however many distinct keys are seen. Since all windows have the same length, each segment
+ * keeps its entries in the order they expire and closing windows only ever looks at the head of a segment. When a segment is full its oldest window is closed early.
+ *
+ * @param <K>
+ *            type of the keys, which must implement equals and hashCode
+ */
+public class RepeatTracker<K> {
+
+    private static final int STRIPES = 16;
+
+    private final long windowMillis;
+
+    private final Segment<K>[] segments;
+
+    // windows closed while tracking, waiting to be returned by expire()
+    private final ConcurrentLinkedQueue<Repeat<K>> closed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param windowMillis
+     *            length of a window in milliseconds
+     * @param maxKeys
+     *            maximum number of keys with an open window
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public RepeatTracker(long windowMillis, int maxKeys) {
+        if (windowMillis <= 0 || maxKeys < 1) {
+            throw new IllegalArgumentException("Window and key limit must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.segments = new Segment[STRIPES];
+        int capacity = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    /**
+     * Records an occurrence of a key.
+     *
+     * @param key
+     *            the key
+     * @param now
+     *            the time of the occurrence in milliseconds
+     * @return true if the key is a repeat within an open window, false if it opened a new window
+     */
+    public boolean isRepeat(K key, long now) {
+        Segment<K> segment = segmentFor(key);
+        synchronized (segment) {
+            Window window = segment.get(key);
+            if (window != null) {
+                if (!isClosed(window, now)) {
+                    if (window.count++ == 0) {
+                        window.first = now;
+                    }
+                    window.last = now;
+                    return true;
+                }
+                // the window closed but was not expired yet, start over
+                segment.remove(key);
+                close(key, window);
+            }
+
+            expireHead(segment, now);
+            if (segment.size() >= segment.capacity) {
+                Iterator<Map.Entry<K, Window>> eldest = segment.entrySet().iterator();
+                Map.Entry<K, Window> entry = eldest.next();
+                eldest.remove();
+                close(entry.getKey(), entry.getValue());
+            }
+            segment.put(key, new Window(now));
+            return false;
+        }
+    }
+
+    /**
+     * Closes the windows that have ended.
+     *
+     * @param now
+     *            the current time in milliseconds
+     * @return the closed windows that had repeats
+     */
+    public List<Repeat<K>> expire(long now) {
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                expireHead(segment, now);
+            }
+        }
+        return drainClosed();
+    }
+
+    /**
+     * Closes all windows, whether they have ended or not.
+     *
+     * @return the closed windows that had repeats
+     */
+    public List<Repeat<K>> flush() {
+        return expire(Long.MAX_VALUE);
+    }
+
+    private void expireHead(Segment<K> segment, long now) {
+        for (Iterator<Map.Entry<K, Window>> it = segment.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<K, Window> entry = it.next();
+            if (!isClosed(entry.getValue(), now)) {
+                break;
+            }
+            it.remove();
+            close(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private boolean isClosed(Window window, long now) {
+        return now == Long.MAX_VALUE || now - window.start >= windowMillis;
+    }
+
+    private void close(K key, Window window) {
+        if (window.count > 0) {
+            closed.add(new Repeat<>(key, window.count, window.first, window.last));
+        }
+    }
+
+    private List<Repeat<K>> drainClosed() {
+        List<Repeat<K>> repeats = new ArrayList<>();
+        for (Repeat<K> repeat = closed.poll(); repeat != null; repeat = closed.poll()) {
+            repeats.add(repeat);
+        }
+        return repeats;
+    }
+
+    private Segment<K> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (STRIPES - 1)];
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The repeats of a key within one window.
+     *
+     * @param <K>
+     *            type of the key
+     */
+    public static final class Repeat<K> {
+
+        private final K key;
+        private final long count;
+        private final long first;
+        private final long last;
+
+        Repeat(K key, long count, long first, long last) {
+            this.key = key;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * @return the number of repeats, not counting the occurrence that opened the window
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the time of the first repeat in milliseconds
+         */
+        public long getFirst() {
+            return first;
+        }
+
+        /**
+         * @return the time of the last repeat in milliseconds
+         */
+        public long getLast() {
+            return last;
+        }
+    }
+
+    // entries are kept in insertion order, which is also the order their windows close
+    private static final class Segment<K> extends LinkedHashMap<K, Window> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(Math.min(capacity, 64));
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class Window {
+
+        final long start;
+        long count;
+        long first;
+        long last;
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
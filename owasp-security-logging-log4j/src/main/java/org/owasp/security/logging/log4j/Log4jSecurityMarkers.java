@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.owasp.security.logging.SecurityMarkers;
+
+/**
+ * Log4j counterpart of {@link SecurityMarkers}. These are native Log4j markers, registered with the {@link MarkerManager} under the same names as the SLF4J markers, so code that logs through the
+ * Log4j API does not need to convert markers on every event.
+ *
+ */
+public class Log4jSecurityMarkers {
+
+    // information classification
+    public static final Marker RESTRICTED = MarkerManager.getMarker(SecurityMarkers.RESTRICTED_MARKER_NAME);
+
+    public static final Marker CONFIDENTIAL = MarkerManager.getMarker(SecurityMarkers.CONFIDENTIAL_MARKER_NAME);
+
+    public static final Marker SECRET = MarkerManager.getMarker(SecurityMarkers.SECRET_MARKER_NAME);
+
+    public static final Marker TOP_SECRET = MarkerManager.getMarker(SecurityMarkers.TOP_SECRET_MARKER_NAME);
+
+    // security events
+    public static final Marker SECURITY_SUCCESS = MarkerManager.getMarker(SecurityMarkers.SECURITY_SUCCESS_MARKER_NAME);
+
+    public static final Marker SECURITY_FAILURE = MarkerManager.getMarker(SecurityMarkers.SECURITY_FAILURE_MARKER_NAME);
+
+    public static final Marker SECURITY_AUDIT = MarkerManager.getMarker(SecurityMarkers.SECURITY_AUDIT_MARKER_NAME);
+
+    // non-security events
+    public static final Marker EVENT_SUCCESS = MarkerManager.getMarker(SecurityMarkers.EVENT_SUCCESS_MARKER_NAME);
+
+    public static final Marker EVENT_FAILURE = MarkerManager.getMarker(SecurityMarkers.EVENT_FAILURE_MARKER_NAME);
+
+    // separates the names of combined markers, and does not occur in the names of the security markers
+    private static final char MARKER_NAME_SEPARATOR = ',';
+
+    // every marker that has a bit in SecurityMarkers, and its bit
+    private static final Marker[] MASKED_MARKERS = { MarkerManager.getMarker(SecurityMarkers.SECURITY_MARKER_NAME), RESTRICTED, CONFIDENTIAL, SECRET, TOP_SECRET, SECURITY_SUCCESS,
+            SECURITY_FAILURE, SECURITY_AUDIT, EVENT_SUCCESS, EVENT_FAILURE, MarkerManager.getMarker(SecurityMarkers.EVENT_UNSPECIFIED_MARKER_NAME) };
+    private static final long[] MASKED_BITS = new long[MASKED_MARKERS.length];
+
+    static {
+        for (int i = 0; i < MASKED_MARKERS.length; i++) {
+            MASKED_BITS[i] = SecurityMarkers.maskOf(MASKED_MARKERS[i].getName());
+        }
+    }
+
+    /**
+     * Returns a marker that has all of the given markers as parents. Markers are managed by name in Log4j, so the same markers in the same order always return the same instance.
+     *
+     * @param markers
+     *            the markers to combine
+     * @return the combined marker
+     */
+    public static Marker getMarker(Marker... markers) {
+        // the names are separated, so different combinations never share a name
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < markers.length; i++) {
+            if (i > 0) {
+                name.append(MARKER_NAME_SEPARATOR);
+            }
+            name.append(markers[i].getName());
+        }
+        Marker marker = MarkerManager.getMarker(name.toString());
+        // the parents follow from the name, so they are only added when the marker is created
+        if (!marker.hasParents()) {
+            marker.addParents(markers);
+        }
+        return marker;
+    }
+
+    /**
+     * Returns the bits of all built-in security markers found in a Log4j marker and its parents. The parents are walked with {@link Marker#isInstanceOf(Marker)}, which does not allocate.
+     *
+     * @param marker
+     *            the marker to examine, may be null
+     * @return the combined bits of the built-in markers
+     * @see SecurityMarkers#maskOf(org.slf4j.Marker)
+     */
+    public static long maskOf(Marker marker) {
+        return maskOf(marker, ~0L);
+    }
+
+    /**
+     * Returns the bits of the given built-in security markers found in a Log4j marker and its parents. Only the parents whose bits are in the given mask are looked for, so a filter only walks the
+     * markers it matches.
+     *
+     * @param marker
+     *            the marker to examine, may be null
+     * @param mask
+     *            the bits of the built-in markers to look for
+     * @return the bits of the given built-in markers in the marker
+     */
+    public static long maskOf(Marker marker, long mask) {
+        if (marker == null) {
+            return 0L;
+        }
+
+        long found = SecurityMarkers.maskOf(marker.getName()) & mask;
+        if (marker.hasParents()) {
+            for (int i = 0; i < MASKED_MARKERS.length; i++) {
+                if ((MASKED_BITS[i] & mask & ~found) != 0 && marker.isInstanceOf(MASKED_MARKERS[i])) {
+                    found |= MASKED_BITS[i];
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.filter;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.async.DaemonThreadFactory;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.Node;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginConfiguration;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.core.filter.CompositeFilter;
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.log4j.Log4jSecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.owasp.security.logging.util.KeyedRateLimiter;
+
+/**
+ * Limits the rate of marked events per source. Events are keyed by the marker they carry and the value of a context map field, such as the remote IP address set by {@link MDCFilter}, and each key
+ * gets a token bucket. Events over the limit are denied; all other events pass as NEUTRAL. Only events that are logged take a permit, so the filter is applied to events and not to the
+ * level checks of the logger.
+ *
+ * The filter must be placed on an appender, an appender reference or a logger. A context-wide filter directly under the configuration is only asked before an event is created and never limits
+ * anything, so a warning is logged when the filter is configured there:
+ *
+ * <pre>
+ * {@code
+ * <Appenders>
+ *   <File name="Security" fileName="security.log">
+ *     <RateLimitingFilter markers="SECURITY FAILURE" mdcKey="ipAddress" rate="10" burst="20" maxKeys="10000" summaryInterval="60" />
+ *   </File>
+ * </Appenders>
+ * }
+ * </pre>
+ *
+ * So that no evidence is silently lost, the number of suppressed events per key is logged periodically as a SECURITY AUDIT event through the summary logger. These summaries are never limited.
+ */
+@Plugin(name = "RateLimitingFilter", category = Node.CATEGORY, elementType = Filter.ELEMENT_TYPE, printObject = true)
+public class RateLimitingFilter extends AbstractFilter {
+
+    private static final long serialVersionUID = -4270417651346735461L;
+
+    /**
+     * Key used for events without the context map field.
+     */
+    public static final String UNKNOWN_KEY = "-";
+
+    private final String[] limitedNames;
+
+    private final String mdcKey;
+
+    private final long summaryInterval;
+
+    private final String summaryLogger;
+
+    // one bucket table per limited marker
+    private final Marker[] limitedMarkers;
+    private final KeyedRateLimiter[] limiters;
+
+    private transient ScheduledExecutorService summaryExecutor;
+
+    private final transient Configuration configuration;
+
+    private RateLimitingFilter(String[] limitedNames, String mdcKey, double rate, int burst, int maxKeys, long summaryInterval, String summaryLogger, Configuration configuration) {
+        this.configuration = configuration;
+        this.limitedNames = limitedNames;
+        this.mdcKey = mdcKey;
+        this.summaryInterval = summaryInterval;
+        this.summaryLogger = summaryLogger;
+        this.limitedMarkers = new Marker[limitedNames.length];
+        this.limiters = new KeyedRateLimiter[limitedNames.length];
+        for (int i = 0; i < limitedNames.length; i++) {
+            limitedMarkers[i] = MarkerManager.getMarker(limitedNames[i]);
+            limiters[i] = new KeyedRateLimiter(rate, burst, maxKeys);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (configuration != null && isContextWide(configuration.getFilter())) {
+            LOGGER.warn("RateLimitingFilter is a context-wide filter and does not limit any events, place it on an appender, an appender reference or a logger");
+        }
+        if (summaryInterval > 0) {
+            summaryExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("RateLimitingFilter-"));
+            summaryExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    reportSuppressed();
+                }
+            }, summaryInterval, summaryInterval, TimeUnit.SECONDS);
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdown();
+            summaryExecutor = null;
+        }
+        super.stop();
+        reportSuppressed();
+    }
+
+    private boolean isContextWide(Filter filter) {
+        return filter == this || filter instanceof CompositeFilter && ((CompositeFilter) filter).getFilters().contains(this);
+    }
+
+    @Override
+    public Result filter(LogEvent event) {
+        Marker marker = event.getMarker();
+        if (marker == null) {
+            return Result.NEUTRAL;
+        }
+        // the summaries of suppressed events pass without taking a permit
+        if (marker == Log4jSecurityMarkers.SECURITY_AUDIT && summaryLogger.equals(event.getLoggerName())) {
+            return Result.NEUTRAL;
+        }
+        Map<String, String> contextMap = event.getContextMap();
+        return filter(marker, contextMap == null ? null : contextMap.get(mdcKey));
+    }
+
+    private Result filter(Marker marker, String key) {
+        if (!isStarted() || marker == null) {
+            return Result.NEUTRAL;
+        }
+
+        for (int i = 0; i < limitedMarkers.length; i++) {
+            if (marker.isInstanceOf(limitedMarkers[i])) {
+                return limiters[i].tryAcquire(key == null ? UNKNOWN_KEY : key) ? Result.NEUTRAL : Result.DENY;
+            }
+        }
+        return Result.NEUTRAL;
+    }
+
+    /**
+     * Logs the number of events suppressed per key since the last report.
+     */
+    public void reportSuppressed() {
+        org.apache.logging.log4j.Logger logger = LogManager.getLogger(summaryLogger);
+        for (int i = 0; i < limiters.length; i++) {
+            for (Map.Entry<String, Long> entry : limiters[i].drainSuppressed().entrySet()) {
+                logger.warn(Log4jSecurityMarkers.SECURITY_AUDIT, "Rate limit suppressed {} {} events for {}={}", entry.getValue(), limitedNames[i], mdcKey, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Create a RateLimitingFilter.
+     *
+     * @param markers
+     *            comma separated names of the markers to limit
+     * @param mdcKey
+     *            the context map field identifying the source
+     * @param rate
+     *            the sustained number of events per second allowed for each key
+     * @param burst
+     *            the number of events a key may log at once before it is limited
+     * @param maxKeys
+     *            the maximum number of keys to track per marker
+     * @param summaryInterval
+     *            seconds between reports of suppressed events, 0 to only report when stopped
+     * @param summaryLogger
+     *            name of the logger for the reports
+     * @param configuration
+     *            the configuration the filter belongs to
+     * @return The created RateLimitingFilter.
+     */
+    @PluginFactory
+    public static RateLimitingFilter createFilter(@PluginAttribute(value = "markers", defaultString = SecurityMarkers.SECURITY_FAILURE_MARKER_NAME) String markers,
+            @PluginAttribute(value = "mdcKey", defaultString = MDCFilter.IPADDRESS) String mdcKey, @PluginAttribute(value = "rate", defaultDouble = 10) double rate,
+            @PluginAttribute(value = "burst", defaultInt = 20) int burst, @PluginAttribute(value = "maxKeys", defaultInt = 10000) int maxKeys,
+            @PluginAttribute(value = "summaryInterval", defaultLong = 60) long summaryInterval, @PluginAttribute(value = "summaryLogger") String summaryLogger,
+            @PluginConfiguration Configuration configuration) {
+        String[] names = markers.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        return new RateLimitingFilter(names, mdcKey, rate, burst, maxKeys, summaryInterval, summaryLogger == null ? RateLimitingFilter.class.getName() : summaryLogger,
+                configuration);
+    }
+}
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.Logger;
@@ -27,9 +28,10 @@ import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
 import org.apache.logging.log4j.core.filter.AbstractFilter;
 import org.apache.logging.log4j.message.Message;
-import org.apache.logging.slf4j.Log4jMarker;
 import org.apache.logging.slf4j.Log4jMarkerFactory;
 import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.log4j.Log4jSecurityMarkers;
+import org.owasp.security.logging.util.IdentityCache;
 
 /**
  * Filters logging for SECURITY markers. If a logging event has a SECURITY marker attached to it, it will pass the filter. This is useful to route security related events to a separate log file.
@@ -54,11 +56,79 @@ public class SecurityMarkerFilter extends AbstractFilter {
         markersToMatch.add(SecurityMarkers.SECURITY_AUDIT);
     }
 
+    private static final int MAX_CACHED_MARKERS = 256;
+
+    // decisions for markers without parents, which only depend on the marker name
+    private final IdentityCache<Marker, Result> decisions = new IdentityCache<>(MAX_CACHED_MARKERS);
+
+    // bits of the markers to match, and the markers to match that have no bit
+    private long maskToMatch;
+    private List<Marker> foreignMarkersToMatch;
+
+    @Override
+    public void start() {
+        maskToMatch = 0L;
+        foreignMarkersToMatch = new ArrayList<>();
+        for (org.slf4j.Marker marker : markersToMatch) {
+            long bit = SecurityMarkers.maskOf(marker.getName());
+            if (bit == 0) {
+                foreignMarkersToMatch.add(MarkerManager.getMarker(marker.getName()));
+            }
+            maskToMatch |= bit;
+        }
+        decisions.clear();
+        super.start();
+    }
+
     @Override
     public Result filter(Logger logger, Level level, Marker marker, String msg, Object... params) {
         return filter(marker);
     }
 
+    /*
+     * Unrolled variants of filter(Logger, Level, Marker, String, Object...) with the signatures of the Log4j 2.7 Filter interface, so callers with a fixed number of parameters do not need to
+     * allocate a parameter array.
+     */
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8) {
+        return filter(marker);
+    }
+
+    public Result filter(Logger logger, Level level, Marker marker, String msg, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9) {
+        return filter(marker);
+    }
+
     @Override
     public Result filter(Logger logger, Level level, Marker marker, Object msg, Throwable t) {
         return filter(marker);
@@ -85,14 +155,35 @@ public class SecurityMarkerFilter extends AbstractFilter {
             return Result.NEUTRAL;
         }
 
-        org.apache.logging.slf4j.Log4jMarker slf4jMarker = new Log4jMarker(marker);
-        for (org.slf4j.Marker matcher : markersToMatch) {
-            if (slf4jMarker.contains(matcher.getName())) {
-                return Result.ACCEPT;
-            }
+        if (marker == null) {
+            return Result.DENY;
+        }
+
+        if (marker.hasParents()) {
+            return matches(marker) ? Result.ACCEPT : Result.DENY;
+        }
+
+        Result result = decisions.get(marker);
+        if (result == null) {
+            result = matches(marker) ? Result.ACCEPT : Result.DENY;
+            decisions.put(marker, result);
+        }
+        return result;
+    }
+
+    private boolean matches(Marker marker) {
+        // built-in markers by their bits
+        if (Log4jSecurityMarkers.maskOf(marker, maskToMatch) != 0) {
+            return true;
         }
 
-        return Result.DENY;
+        // other markers by name, walking the parents without copying them
+        for (Marker foreignMarker : foreignMarkersToMatch) {
+            if (marker.getName().equals(foreignMarker.getName()) || marker.hasParents() && marker.isInstanceOf(foreignMarker)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
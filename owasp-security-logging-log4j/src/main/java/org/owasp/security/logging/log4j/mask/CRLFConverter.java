@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternFormatter;
+import org.apache.logging.log4j.core.pattern.PatternParser;
+
+/**
+ * Replaces carriage returns and line feeds with underscores to prevent log injection attacks, like the Logback <code>CRLFConverter</code>. Without options the formatted message is sanitized,
+ * otherwise the output of the pattern in the first option:
+ *
+ * <pre>
+ * %crlf %crlf{%msg %ex}
+ * </pre>
+ *
+ * The output is appended to the layout's buffer and sanitized there in a single pass, so nothing is copied or allocated.
+ */
+@Plugin(name = "CRLFConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({ "crlf" })
+public final class CRLFConverter extends LogEventPatternConverter {
+
+    private static final char REPLACEMENT = '_';
+
+    // formatters of the nested pattern, empty for the formatted message
+    private final List<PatternFormatter> formatters;
+
+    private CRLFConverter(List<PatternFormatter> formatters) {
+        super("crlf", "crlf");
+        this.formatters = formatters;
+    }
+
+    /**
+     * Obtains an instance of the converter.
+     *
+     * @param config
+     *            the configuration
+     * @param options
+     *            the pattern to sanitize, may be empty
+     * @return the converter
+     */
+    public static CRLFConverter newInstance(Configuration config, String[] options) {
+        if (options == null || options.length == 0 || options[0] == null) {
+            return new CRLFConverter(Collections.<PatternFormatter> emptyList());
+        }
+        PatternParser parser = PatternLayout.createPatternParser(config);
+        return new CRLFConverter(parser.parse(options[0]));
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        int start = toAppendTo.length();
+        if (formatters.isEmpty()) {
+            if (event.getMessage() != null) {
+                toAppendTo.append(event.getMessage().getFormattedMessage());
+            }
+        } else {
+            for (int i = 0; i < formatters.size(); i++) {
+                formatters.get(i).format(event, toAppendTo);
+            }
+        }
+        sanitize(toAppendTo, start);
+    }
+
+    /**
+     * @return true if the nested pattern writes the exception, so the layout does not append it unsanitized
+     */
+    @Override
+    public boolean handlesThrowable() {
+        for (int i = 0; i < formatters.size(); i++) {
+            if (formatters.get(i).handlesThrowable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void sanitize(StringBuilder buf, int start) {
+        for (int i = start, length = buf.length(); i < length; i++) {
+            char c = buf.charAt(i);
+            if (c == '\r' || c == '\n') {
+                buf.setCharAt(i, REPLACEMENT);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import java.util.IllegalFormatException;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.owasp.security.logging.Sensitive;
+import org.owasp.security.logging.mask.TokenMasker;
+
+/**
+ * A masked view of a {@link ParameterizedMessage}, {@link org.apache.logging.log4j.message.StringFormattedMessage} or {@link ObjectMessage}. The source message and its parameters are left
+ * untouched, and the masked message is only formatted when an appender asks for it.
+ *
+ * Values are replaced by {@link Sensitive#MASK}, or by their tokens if a {@link TokenMasker} is given.
+ */
+final class MaskedMessage implements Message {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Message source;
+
+    // mask every parameter, or only the Sensitive ones
+    private final boolean maskAll;
+
+    // replaces values by tokens, or null to mask them
+    private final transient TokenMasker tokens;
+
+    private String formatted;
+
+    MaskedMessage(Message source, boolean maskAll) {
+        this(source, maskAll, null);
+    }
+
+    MaskedMessage(Message source, boolean maskAll, TokenMasker tokens) {
+        this.source = source;
+        this.maskAll = maskAll;
+        this.tokens = tokens;
+    }
+
+    @Override
+    public String getFormattedMessage() {
+        if (formatted == null) {
+            formatted = format();
+        }
+        return formatted;
+    }
+
+    private String format() {
+        if (source instanceof ObjectMessage) {
+            return maskObject();
+        }
+        if (source instanceof ParameterizedMessage) {
+            return ParameterizedMessage.format(source.getFormat(), getParameters());
+        }
+        try {
+            return String.format(source.getFormat(), getParameters());
+        } catch (IllegalFormatException e) {
+            // a conversion that does not accept the mask, the values stay hidden
+            return source.getFormat();
+        }
+    }
+
+    @Override
+    public String getFormat() {
+        return source instanceof ObjectMessage ? maskObject() : source.getFormat();
+    }
+
+    private String maskObject() {
+        if (tokens == null) {
+            return Sensitive.MASK;
+        }
+        Object[] params = source.getParameters();
+        return tokens.token(params == null || params.length == 0 ? null : params[0]);
+    }
+
+    /**
+     * @return a masked copy of the parameters of the source message
+     */
+    @Override
+    public Object[] getParameters() {
+        Object[] params = source.getParameters();
+        if (params == null) {
+            return null;
+        }
+        Object[] masked = new Object[params.length];
+        for (int i = 0; i < params.length; i++) {
+            if (maskAll || params[i] instanceof Sensitive) {
+                masked[i] = tokens == null ? Sensitive.MASK : tokens.token(params[i]);
+            } else {
+                masked[i] = params[i];
+            }
+        }
+        return masked;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return source.getThrowable();
+    }
+
+    @Override
+    public String toString() {
+        return getFormattedMessage();
+    }
+
+    // the source message holds the unmasked values, only the masked text is serialized
+    private Object writeReplace() {
+        return new SimpleMessage(getFormattedMessage());
+    }
+}
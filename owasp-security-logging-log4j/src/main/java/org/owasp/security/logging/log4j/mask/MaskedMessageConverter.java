@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.owasp.security.logging.mask.DefinedMaskingRules;
+import org.owasp.security.logging.mask.RegexMasker;
+
+/**
+ * Masks configured values in the formatted message, with the same pre-defined rules as the Logback <code>DefinedRegexMaskingConverter</code>. Each option lists the keys for one rule, in the order
+ * CompleteMask, MaskLastFour, MaskFirstFour, emailMasking:
+ *
+ * <pre>
+ * %maskedMsg{password|signature}{username}{orderNumber|giftCardNum}{email}
+ * </pre>
+ *
+ * The rules are compiled once, and the masked message is appended straight to the layout's buffer.
+ */
+@Plugin(name = "MaskedMessageConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({ "maskedMsg" })
+public final class MaskedMessageConverter extends LogEventPatternConverter {
+
+    private final RegexMasker masker;
+
+    private MaskedMessageConverter(String[] options) {
+        super("maskedMsg", "maskedMsg");
+        this.masker = DefinedMaskingRules.compile(options == null ? null : Arrays.asList(options));
+    }
+
+    /**
+     * Obtains an instance of the converter.
+     *
+     * @param options
+     *            the keys of each rule
+     * @return the converter
+     */
+    public static MaskedMessageConverter newInstance(String[] options) {
+        return new MaskedMessageConverter(options);
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        if (event.getMessage() != null) {
+            masker.mask(event.getMessage().getFormattedMessage(), toAppendTo);
+        }
+    }
+}
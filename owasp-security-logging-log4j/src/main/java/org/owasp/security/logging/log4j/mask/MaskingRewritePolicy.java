@@ -13,29 +13,80 @@
  */
 package org.owasp.security.logging.log4j.mask;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.appender.rewrite.RewritePolicy;
 import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
 import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.MapMessage;
 import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
 import org.apache.logging.log4j.message.ParameterizedMessage;
-import org.apache.logging.slf4j.Log4jMarker;
-import org.owasp.security.logging.SecurityMarkers;
+import org.apache.logging.log4j.message.StringFormattedMessage;
+import org.apache.logging.log4j.status.StatusLogger;
+import org.owasp.security.logging.Sensitive;
+import org.owasp.security.logging.log4j.Log4jSecurityMarkers;
+import org.owasp.security.logging.mask.TokenMasker;
 
 /**
+ * Masks the parameters of CONFIDENTIAL events. If any parameters are wrapped in {@link Sensitive} only those are masked, otherwise all of them are.
+ *
+ * {@link ParameterizedMessage} and {@link StringFormattedMessage} parameters are masked, as are the whole object of an {@link ObjectMessage} and the values of a {@link MapMessage}. The source
+ * message is never modified, and the masked text is only formatted when an appender asks for it.
+ *
+ * With <code>mode="token"</code> values are replaced by keyed {@link TokenMasker} tokens instead of a fixed mask, so equal values can still be correlated across events. The key is read from the
+ * system property or environment variable named by the <code>key</code> attribute, {@value TokenMasker#DEFAULT_KEY_NAME} by default. In this mode the {@link Sensitive} parameters of events
+ * without the CONFIDENTIAL marker are replaced by their tokens as well.
  *
  * @author adetlefsen
  */
 @Plugin(name = "MaskingRewritePolicy", category = "Core", elementType = "rewritePolicy", printObject = true)
 public class MaskingRewritePolicy implements RewritePolicy {
 
-    public static final Object MASKED_PASSWORD = "********";
+    public static final Object MASKED_PASSWORD = Sensitive.MASK;
+
+    public static final String TOKEN_MODE = "token";
+
+    // the token masker in token mode, null to mask with a fixed mask
+    private final TokenMasker tokens;
+
+    private MaskingRewritePolicy(TokenMasker tokens) {
+        this.tokens = tokens;
+    }
 
-    @PluginFactory
     public static MaskingRewritePolicy createPolicy() {
-        return new MaskingRewritePolicy();
+        return new MaskingRewritePolicy(null);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param mode
+     *            {@value #TOKEN_MODE} to replace values by keyed tokens, or <code>null</code> to mask them
+     * @param keyName
+     *            the name of the system property or environment variable holding the token key
+     * @return the policy
+     */
+    @PluginFactory
+    public static MaskingRewritePolicy createPolicy(@PluginAttribute("mode") String mode, @PluginAttribute("key") String keyName) {
+        if (!TOKEN_MODE.equalsIgnoreCase(mode)) {
+            if (mode != null && !mode.isEmpty()) {
+                StatusLogger.getLogger().warn("Unknown MaskingRewritePolicy mode {}, values are masked", mode);
+            }
+            return createPolicy();
+        }
+        String name = keyName == null || keyName.isEmpty() ? TokenMasker.DEFAULT_KEY_NAME : keyName;
+        byte[] key = TokenMasker.lookupKey(name);
+        if (key == null) {
+            StatusLogger.getLogger().warn("No token key in property or environment variable {}, tokens only correlate within this process", name);
+            return new MaskingRewritePolicy(TokenMasker.withRandomKey());
+        }
+        return new MaskingRewritePolicy(new TokenMasker(key));
     }
 
     /**
@@ -47,38 +98,68 @@ public class MaskingRewritePolicy implements RewritePolicy {
      */
     @Override
     public LogEvent rewrite(LogEvent source) {
-        // get the markers for the log event. If no markers, nothing can be
-        // tagged confidential and we can return
+        // get the markers for the log event. If the event is not marked as
+        // confidential we can return, unless its Sensitive parameters must be tokenized
         Marker sourceMarker = source.getMarker();
-        if (sourceMarker == null)
+        boolean confidential = sourceMarker != null && sourceMarker.isInstanceOf(Log4jSecurityMarkers.CONFIDENTIAL);
+        if (!confidential && tokens == null)
             return source;
 
-        // get the message. If no message we can return
+        // get the message. If it has nothing to mask we can return
         final Message msg = source.getMessage();
-        if (msg == null || !(msg instanceof ParameterizedMessage))
+        Message outMessage = confidential ? mask(msg) : tokenizeSensitive(msg);
+        if (outMessage == msg)
             return source;
 
-        // get the parameters. If no params we can return
-        Object[] params = msg.getParameters();
-        if (params == null || params.length == 0)
-            return source;
+        return new Log4jLogEvent.Builder(source).setMessage(outMessage).build();
+    }
 
-        // check if this event is actually marked as confidential. If not,
-        // return
-        Log4jMarker eventMarker = new Log4jMarker(sourceMarker);
-        if (!eventMarker.contains(SecurityMarkers.CONFIDENTIAL))
-            return source;
+    /**
+     * Returns a masked version of a confidential message.
+     *
+     * @param msg
+     *            the message, may be <code>null</code>
+     * @return the masked message, or the same instance if the message type is not supported or there is nothing to mask
+     */
+    Message mask(Message msg) {
+        if (msg instanceof MapMessage) {
+            MapMessage map = (MapMessage) msg;
+            if (map.getData().isEmpty())
+                return msg;
+            Map<String, String> masked = new LinkedHashMap<>();
+            for (String key : map.getData().keySet()) {
+                masked.put(key, tokens == null ? Sensitive.MASK : tokens.token(map.get(key)));
+            }
+            return map.newInstance(masked);
+        }
+        if (msg instanceof ObjectMessage)
+            return new MaskedMessage(msg, true, tokens);
+        if (msg instanceof ParameterizedMessage || msg instanceof StringFormattedMessage) {
+            Object[] params = msg.getParameters();
+            if (params == null || params.length == 0)
+                return msg;
+            return new MaskedMessage(msg, !hasSensitive(params), tokens);
+        }
+        return msg;
+    }
 
-        // we have a message, parameters, a marker, and it is confidential.
-        // Process
-        for (int i = 0; i < params.length; i++) {
-            params[i] = MASKED_PASSWORD;
+    // replaces the Sensitive parameters of a message that is not confidential by their tokens
+    private Message tokenizeSensitive(Message msg) {
+        if (msg instanceof ParameterizedMessage || msg instanceof StringFormattedMessage) {
+            if (hasSensitive(msg.getParameters()))
+                return new MaskedMessage(msg, false, tokens);
         }
-        Message outMessage = new ParameterizedMessage(msg.getFormat(), params, msg.getThrowable());
-        LogEvent output = new Log4jLogEvent(source.getLoggerName(), source.getMarker(), source.getLoggerFqcn(), source.getLevel(), outMessage, source.getThrown(), source.getContextMap(),
-                source.getContextStack(), source.getThreadName(), source.getSource(), source.getTimeMillis());
+        return msg;
+    }
 
-        return output;
+    private static boolean hasSensitive(Object[] params) {
+        if (params != null) {
+            for (Object param : params) {
+                if (param instanceof Sensitive)
+                    return true;
+            }
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternFormatter;
+import org.apache.logging.log4j.core.pattern.PatternParser;
+import org.owasp.security.logging.mask.SecretDictionary;
+
+/**
+ * Masks every occurrence of the secrets registered in the {@link SecretDictionary}, like the Logback <code>SecretMaskingConverter</code>. Without options the formatted message is masked, otherwise
+ * the output of the pattern in the first option, which can include the exception:
+ *
+ * <pre>
+ * %maskSecrets %maskSecrets{%msg%n%ex}
+ * </pre>
+ *
+ * The output is appended to the layout's buffer and scanned there for all secrets at once, and only copied when it contains one.
+ */
+@Plugin(name = "SecretMaskingConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({ "maskSecrets" })
+public final class SecretMaskingConverter extends LogEventPatternConverter {
+
+    // formatters of the nested pattern, empty for the formatted message
+    private final List<PatternFormatter> formatters;
+
+    private SecretMaskingConverter(List<PatternFormatter> formatters) {
+        super("maskSecrets", "maskSecrets");
+        this.formatters = formatters;
+    }
+
+    /**
+     * Obtains an instance of the converter.
+     *
+     * @param config
+     *            the configuration
+     * @param options
+     *            the pattern to mask, may be empty
+     * @return the converter
+     */
+    public static SecretMaskingConverter newInstance(Configuration config, String[] options) {
+        if (options == null || options.length == 0 || options[0] == null) {
+            return new SecretMaskingConverter(Collections.<PatternFormatter> emptyList());
+        }
+        PatternParser parser = PatternLayout.createPatternParser(config);
+        return new SecretMaskingConverter(parser.parse(options[0], false, false));
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        int start = toAppendTo.length();
+        if (formatters.isEmpty()) {
+            if (event.getMessage() != null) {
+                toAppendTo.append(event.getMessage().getFormattedMessage());
+            }
+        } else {
+            for (int i = 0; i < formatters.size(); i++) {
+                formatters.get(i).format(event, toAppendTo);
+            }
+        }
+        SecretDictionary.mask(toAppendTo, start);
+    }
+
+    /**
+     * @return true if the nested pattern writes the exception, so the layout does not append it unmasked
+     */
+    @Override
+    public boolean handlesThrowable() {
+        for (int i = 0; i < formatters.size(); i++) {
+            if (formatters.get(i).handlesThrowable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,8 +16,11 @@ package org.owasp.security.logging.log4j;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.junit.LoggerContextRule;
 import org.apache.logging.log4j.test.appender.ListAppender;
 import org.junit.After;
@@ -122,4 +125,27 @@ public class ExcludeClassifiedMarkerFilterTest {
         assertEquals(Filter.Result.DENY, mkt.filter(multiSecurityEvent));
     }
 
+    @Test
+    public void testNativeMarkers() {
+        ExcludeClassifiedMarkerFilter mkt = ExcludeClassifiedMarkerFilter.createFilter();
+        mkt.start();
+
+        Logger logger = context.getLogger(ExcludeClassifiedMarkerFilterTest.class.getName());
+
+        // no marker
+        assertEquals(Filter.Result.NEUTRAL, mkt.filter(logger, Level.INFO, null, "no marker"));
+
+        // single native markers
+        assertEquals(Filter.Result.NEUTRAL, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.SECURITY_FAILURE, "failure"));
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.CONFIDENTIAL, "confidential"));
+
+        // native markers with parents
+        Marker failureConfidential = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_FAILURE, Log4jSecurityMarkers.CONFIDENTIAL);
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, failureConfidential, "failure and confidential"));
+        Marker eventSuccess = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.EVENT_SUCCESS, Log4jSecurityMarkers.EVENT_FAILURE);
+        assertEquals(Filter.Result.NEUTRAL, mkt.filter(logger, Level.INFO, eventSuccess, "event"));
+
+        // repeated calls use the cached decision
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.CONFIDENTIAL, "confidential"));
+    }
 }
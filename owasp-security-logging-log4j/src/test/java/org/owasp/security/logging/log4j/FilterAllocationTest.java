@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.owasp.security.logging.log4j.filter.ExcludeClassifiedMarkerFilter;
+import org.owasp.security.logging.log4j.filter.SecurityMarkerFilter;
+
+/**
+ * Verifies that the security filters do not allocate while filtering. Allocation is measured with the HotSpot per-thread allocation counter, so the test is skipped on JVMs without it.
+ */
+public class FilterAllocationTest {
+
+    private static final String CONFIG = "log4j2.xml";
+
+    private static final int WARMUP = 20000;
+
+    private static final int ITERATIONS = 10000;
+
+    @ClassRule
+    public static LoggerContextRule context = new LoggerContextRule(CONFIG);
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    private Logger logger;
+
+    private final Marker multiMarker = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_AUDIT, Log4jSecurityMarkers.CONFIDENTIAL);
+
+    private final Object[] params = { "a", "b" };
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        logger = context.getLogger(FilterAllocationTest.class.getName());
+    }
+
+    @Test
+    public void testSecurityMarkerFilter() {
+        SecurityMarkerFilter filter = SecurityMarkerFilter.createFilter(false);
+        filter.start();
+
+        assertEquals(Filter.Result.ACCEPT, filter.filter(logger, Level.INFO, multiMarker, "{} {}", "a", "b"));
+        assertEquals(Filter.Result.DENY, filter.filter(logger, Level.INFO, Log4jSecurityMarkers.EVENT_SUCCESS, "{}", "a"));
+        assertNoAllocation(filter);
+    }
+
+    @Test
+    public void testExcludeClassifiedMarkerFilter() {
+        ExcludeClassifiedMarkerFilter filter = ExcludeClassifiedMarkerFilter.createFilter();
+        filter.start();
+
+        assertEquals(Filter.Result.DENY, filter.filter(logger, Level.INFO, multiMarker, "{} {}", "a", "b"));
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(logger, Level.INFO, Log4jSecurityMarkers.EVENT_SUCCESS, "{}", "a"));
+        assertNoAllocation(filter);
+    }
+
+    private void assertNoAllocation(Filter filter) {
+        LogEvent event = new Log4jLogEvent(logger.getName(), multiMarker, null, Level.INFO, new SimpleMessage("event"), null, null);
+
+        // let the JIT settle before measuring
+        run(filter, event, WARMUP);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        run(filter, event, ITERATIONS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // allow a little slack for the measurement itself
+        assertTrue("filter allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private int run(Filter filter, LogEvent event, int iterations) {
+        int accepted = 0;
+        for (int i = 0; i < iterations; i++) {
+            Marker marker = (i & 1) == 0 ? multiMarker : Log4jSecurityMarkers.EVENT_SUCCESS;
+            if (filter.filter(event) == Filter.Result.ACCEPT) {
+                accepted++;
+            }
+            if (filter.filter(logger, Level.INFO, marker, "{} {}", params) == Filter.Result.ACCEPT) {
+                accepted++;
+            }
+            if (filter instanceof SecurityMarkerFilter) {
+                SecurityMarkerFilter security = (SecurityMarkerFilter) filter;
+                if (security.filter(logger, Level.INFO, marker, "{}", "a") == Filter.Result.ACCEPT) {
+                    accepted++;
+                }
+                if (security.filter(logger, Level.INFO, marker, "{} {} {}", "a", "b", "c") == Filter.Result.ACCEPT) {
+                    accepted++;
+                }
+            } else {
+                ExcludeClassifiedMarkerFilter exclude = (ExcludeClassifiedMarkerFilter) filter;
+                if (exclude.filter(logger, Level.INFO, marker, "{}", "a") == Filter.Result.ACCEPT) {
+                    accepted++;
+                }
+                if (exclude.filter(logger, Level.INFO, marker, "{} {} {}", "a", "b", "c") == Filter.Result.ACCEPT) {
+                    accepted++;
+                }
+            }
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.test.appender.ListAppender;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.owasp.security.logging.log4j.filter.RateLimitingFilter;
+import org.owasp.security.logging.mdc.MDCFilter;
+
+public class RateLimitingFilterTest {
+
+    private static final String CONFIG = "log4j2.xml";
+
+    @ClassRule
+    public static LoggerContextRule context = new LoggerContextRule(CONFIG);
+
+    @Test
+    public void testRaw() {
+        RateLimitingFilter filter = RateLimitingFilter.createFilter("SECURITY FAILURE, SECURITY AUDIT", MDCFilter.IPADDRESS, 0.001, 2, 100, 0, null, null);
+        filter.start();
+
+        // unmarked and other events are not limited
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Filter.Result.NEUTRAL, filter.filter(event(Log4jSecurityMarkers.SECURITY_SUCCESS, "10.0.0.1")));
+            assertEquals(Filter.Result.NEUTRAL, filter.filter(event(null, "10.0.0.1")));
+        }
+
+        // each marker and IP address has its own bucket
+        Marker multi = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_FAILURE, Log4jSecurityMarkers.CONFIDENTIAL);
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.1")));
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(multi, "10.0.0.1")));
+        assertEquals(Filter.Result.DENY, filter.filter(event(Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.1")));
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.2")));
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(Log4jSecurityMarkers.SECURITY_AUDIT, "10.0.0.1")));
+
+        // summaries of suppressed events are never limited, other events of the summary logger are
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Filter.Result.NEUTRAL, filter.filter(event(RateLimitingFilter.class.getName(), Log4jSecurityMarkers.SECURITY_AUDIT, "10.0.0.3")));
+        }
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(RateLimitingFilter.class.getName(), Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.3")));
+        assertEquals(Filter.Result.NEUTRAL, filter.filter(event(RateLimitingFilter.class.getName(), Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.3")));
+        assertEquals(Filter.Result.DENY, filter.filter(event(RateLimitingFilter.class.getName(), Log4jSecurityMarkers.SECURITY_FAILURE, "10.0.0.3")));
+
+        // suppressed events are reported when the filter stops
+        ListAppender appender = context.getListAppender("List").clear();
+        filter.stop();
+        Set<String> messages = new HashSet<>();
+        for (LogEvent event : appender.getEvents()) {
+            messages.add(event.getMessage().getFormattedMessage());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("Rate limit suppressed 1 SECURITY FAILURE events for ipAddress=10.0.0.1",
+                "Rate limit suppressed 1 SECURITY FAILURE events for ipAddress=10.0.0.3")), messages);
+    }
+
+    private static LogEvent event(Marker marker, String ipAddress) {
+        return event(RateLimitingFilterTest.class.getName(), marker, ipAddress);
+    }
+
+    private static LogEvent event(String loggerName, Marker marker, String ipAddress) {
+        return Log4jLogEvent.newBuilder().setLoggerName(loggerName).setMarker(marker).setLevel(Level.WARN).setMessage(new SimpleMessage("login failed"))
+                .setContextMap(Collections.singletonMap(MDCFilter.IPADDRESS, ipAddress)).build();
+    }
+}
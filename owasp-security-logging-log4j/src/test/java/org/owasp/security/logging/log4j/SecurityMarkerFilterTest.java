@@ -15,10 +15,14 @@ package org.owasp.security.logging.log4j;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.junit.LoggerContextRule;
 import org.apache.logging.log4j.test.appender.ListAppender;
 import org.junit.After;
@@ -147,4 +151,56 @@ public class SecurityMarkerFilterTest {
      * mkt.decide(secretEvent)); }
      */
 
+    @Test
+    public void testNativeMarkers() {
+        SecurityMarkerFilter mkt = SecurityMarkerFilter.createFilter(false);
+        mkt.start();
+
+        Logger logger = context.getLogger(SecurityMarkerFilterTest.class.getName());
+
+        // no marker
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, null, "no marker"));
+
+        // single native markers
+        assertEquals(Filter.Result.ACCEPT, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.SECURITY_FAILURE, "failure"));
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.CONFIDENTIAL, "confidential"));
+
+        // native markers with parents
+        org.apache.logging.log4j.Marker failureConfidential = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_FAILURE, Log4jSecurityMarkers.CONFIDENTIAL);
+        assertEquals(Filter.Result.ACCEPT, mkt.filter(logger, Level.INFO, failureConfidential, "failure and confidential"));
+        org.apache.logging.log4j.Marker eventSuccess = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.EVENT_SUCCESS, Log4jSecurityMarkers.EVENT_FAILURE);
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, eventSuccess, "event"));
+
+        // repeated calls use the cached decision
+        assertEquals(Filter.Result.DENY, mkt.filter(logger, Level.INFO, Log4jSecurityMarkers.CONFIDENTIAL, "confidential"));
+    }
+
+    @Test
+    public void testCombinedMarkerNames() {
+        org.apache.logging.log4j.Marker a = org.apache.logging.log4j.MarkerManager.getMarker("A");
+        org.apache.logging.log4j.Marker bc = org.apache.logging.log4j.MarkerManager.getMarker("BC");
+        org.apache.logging.log4j.Marker ab = org.apache.logging.log4j.MarkerManager.getMarker("AB");
+        org.apache.logging.log4j.Marker c = org.apache.logging.log4j.MarkerManager.getMarker("C");
+
+        // the concatenated names are equal, the combined markers are not
+        org.apache.logging.log4j.Marker first = Log4jSecurityMarkers.getMarker(a, bc);
+        org.apache.logging.log4j.Marker second = Log4jSecurityMarkers.getMarker(ab, c);
+        assertNotSame(first, second);
+        assertTrue(first.isInstanceOf(bc));
+        assertFalse(first.isInstanceOf(c));
+        assertTrue(second.isInstanceOf(c));
+        assertFalse(second.isInstanceOf(bc));
+    }
+
+    @Test
+    public void testCombinedMarkerMask() {
+        org.apache.logging.log4j.Marker multi = Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_FAILURE, Log4jSecurityMarkers.CONFIDENTIAL);
+        assertSame(multi, Log4jSecurityMarkers.getMarker(Log4jSecurityMarkers.SECURITY_FAILURE, Log4jSecurityMarkers.CONFIDENTIAL));
+
+        assertEquals(SecurityMarkers.SECURITY_FAILURE_MASK | SecurityMarkers.CONFIDENTIAL_MASK, Log4jSecurityMarkers.maskOf(multi));
+        // only the given bits are looked for
+        assertEquals(SecurityMarkers.CONFIDENTIAL_MASK, Log4jSecurityMarkers.maskOf(multi, SecurityMarkers.CLASSIFIED_MASK));
+        assertEquals(0L, Log4jSecurityMarkers.maskOf(multi, SecurityMarkers.SECURITY_AUDIT_MASK));
+        assertEquals(0L, Log4jSecurityMarkers.maskOf(null));
+    }
 }
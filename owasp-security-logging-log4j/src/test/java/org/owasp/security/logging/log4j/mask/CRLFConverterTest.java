@@ -13,11 +13,16 @@
  */
 package org.owasp.security.logging.log4j.mask;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
 import org.apache.logging.log4j.core.pattern.EncodingPatternConverter;
 import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.SimpleMessage;
 import org.apache.logging.log4j.test.appender.ListAppender;
 import org.junit.After;
 import org.junit.Before;
@@ -28,7 +33,8 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.slf4j.LoggerFactory;
 
 /**
- * Log4j already includes a converter to escape carriage returns and line feeds. This test just verifies that it works as expected.
+ * Log4j already includes a converter to escape carriage returns and line feeds. This test verifies that it works as expected, and tests the {@link CRLFConverter} that replaces them like the
+ * Logback converter.
  * 
  * @author August Detlefsen [augustd@codemagi.com]
  */
@@ -52,6 +58,7 @@ public class CRLFConverterTest {
 
     @After
     public void teardown() {
+        appender.clear();
     }
 
     @Test
@@ -69,4 +76,49 @@ public class CRLFConverterTest {
         assertTrue(sb.toString().contains("This message contains \\r\\n line feeds"));
     }
 
+    @Test
+    public void testCRLFConverter() {
+        LOGGER.info("This message contains \r\n line feeds");
+        LogEvent event = appender.getEvents().get(0);
+
+        final StringBuilder sb = new StringBuilder("before\n");
+        CRLFConverter.newInstance(context.getConfiguration(), new String[0]).format(event, sb);
+
+        // only the converter's output is sanitized
+        assertEquals("before\nThis message contains __ line feeds", sb.toString());
+    }
+
+    @Test
+    public void testCRLFConverterPattern() {
+        LOGGER.info("first\nsecond");
+        LogEvent event = appender.getEvents().get(0);
+
+        final StringBuilder sb = new StringBuilder();
+        CRLFConverter.newInstance(context.getConfiguration(), new String[] { "%level %msg%n" }).format(event, sb);
+
+        assertEquals("INFO first_second_", sb.toString());
+    }
+
+    @Test
+    public void testCRLFConverterThrowable() {
+        PatternLayout layout = PatternLayout.newBuilder().withConfiguration(context.getConfiguration()).withPattern("%crlf{%msg %ex}").build();
+        LogEvent event = Log4jLogEvent.newBuilder().setMessage(new SimpleMessage("failed")).setThrown(new IllegalStateException("forged\r\nERROR entry")).build();
+
+        String output = layout.toSerializable(event);
+        assertFalse(output, output.contains("\r") || output.contains("\n"));
+        assertTrue(output, output.startsWith("failed java.lang.IllegalStateException: forged__ERROR entry"));
+        // the layout does not append the exception again
+        assertEquals(output.indexOf("IllegalStateException"), output.lastIndexOf("IllegalStateException"));
+    }
+
+    @Test
+    public void testCRLFConverterCleanMessage() {
+        LOGGER.info("This message is clean");
+        LogEvent event = appender.getEvents().get(0);
+
+        final StringBuilder sb = new StringBuilder();
+        CRLFConverter.newInstance(context.getConfiguration(), null).format(event, sb);
+
+        assertEquals("This message is clean", sb.toString());
+    }
 }
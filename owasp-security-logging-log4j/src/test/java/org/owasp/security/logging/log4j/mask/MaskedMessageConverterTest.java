@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class MaskedMessageConverterTest {
+
+    private static final String CONFIG = "log4j2.xml";
+
+    @ClassRule
+    public static LoggerContextRule context = new LoggerContextRule(CONFIG);
+
+    private final MaskedMessageConverter converter = MaskedMessageConverter.newInstance(new String[] { "password|signature", "username", "orderNumber|giftCardNum", "email" });
+
+    @Test
+    public void testRules() {
+        assertEquals("password=*****", format("password=abc123"));
+        assertEquals("\"password\":\"*****\",signature=*****", format("\"password\":\"abc123\",signature=foo"));
+        assertEquals("username=ab*****", format("username=abc123"));
+        assertEquals("orderNumber=*****c123", format("orderNumber=77887765567abc123"));
+        assertEquals("email=foo*****", format("email=foo@bar.com"));
+        assertEquals("nothing to mask", format("nothing to mask"));
+    }
+
+    @Test
+    public void testFormattedMessage() {
+        LogEvent event = Log4jLogEvent.newBuilder().setMessage(new ParameterizedMessage("user {} has password={}", "jdoe", "abc123")).build();
+        StringBuilder sb = new StringBuilder("prefix ");
+        converter.format(event, sb);
+        assertEquals("prefix user jdoe has password=*****", sb.toString());
+    }
+
+    @Test
+    public void testPatternLayout() {
+        PatternLayout layout = PatternLayout.newBuilder().withConfiguration(context.getConfiguration()).withPattern("%maskedMsg{password}").build();
+        LogEvent event = Log4jLogEvent.newBuilder().setMessage(new SimpleMessage("{\"password\":\"abc123\",\"email\":\"foo@bar.com\"}")).build();
+        assertEquals("{\"password\":\"*****\",\"email\":\"foo@bar.com\"}", layout.toSerializable(event));
+    }
+
+    private String format(String message) {
+        StringBuilder sb = new StringBuilder();
+        converter.format(Log4jLogEvent.newBuilder().setMessage(new SimpleMessage(message)).build(), sb);
+        return sb.toString();
+    }
+}
@@ -1,17 +1,32 @@
 package org.owasp.security.logging.log4j.mask;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
 import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.MapMessage;
 import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.StringFormattedMessage;
 import org.apache.logging.log4j.test.appender.ListAppender;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.Sensitive;
+import org.owasp.security.logging.log4j.Log4jSecurityMarkers;
+import org.owasp.security.logging.mask.TokenMasker;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -31,6 +46,8 @@ public class MaskingRewritePolicyTest {
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(MaskingRewritePolicyTest.class);
 
+    private static final org.apache.logging.log4j.Logger LOG4J_LOGGER = LogManager.getLogger(MaskingRewritePolicyTest.class);
+
     private static final String SSN = "123-45-6789";
 
     @ClassRule
@@ -111,6 +128,85 @@ public class MaskingRewritePolicyTest {
         assertTrue(message.getFormattedMessage().contains("ssn=" + SSN));
     }
 
+    /**
+     * Only the Sensitive parameters of a CONFIDENTIAL event are masked
+     */
+    @Test
+    public void testRewriteSensitiveParams() {
+        LOGGER.info(SecurityMarkers.CONFIDENTIAL, "user={} ssn={}", "jdoe", Sensitive.of(SSN));
+        final Message message = appender.getEvents().get(0).getMessage();
+
+        assertEquals("user=jdoe ssn=" + MaskingRewritePolicy.MASKED_PASSWORD, message.getFormattedMessage());
+    }
+
+    /**
+     * Sensitive parameters are hidden even without the CONFIDENTIAL marker
+     */
+    @Test
+    public void testRewriteSensitiveNotConfidential() {
+        LOGGER.info("user={} ssn={}", "jdoe", Sensitive.of(SSN));
+        final Message message = appender.getEvents().get(0).getMessage();
+
+        assertEquals("user=jdoe ssn=" + MaskingRewritePolicy.MASKED_PASSWORD, message.getFormattedMessage());
+    }
+
+    /**
+     * The parameters passed by the caller are not modified
+     */
+    @Test
+    public void testRewriteKeepsParams() {
+        Object[] params = { "jdoe", SSN };
+        LOGGER.info(SecurityMarkers.CONFIDENTIAL, "user={} ssn={}", params);
+        final Message message = appender.getEvents().get(0).getMessage();
+
+        assertEquals("user=" + MaskingRewritePolicy.MASKED_PASSWORD + " ssn=" + MaskingRewritePolicy.MASKED_PASSWORD, message.getFormattedMessage());
+        assertArrayEquals(new Object[] { "jdoe", SSN }, params);
+    }
+
+    @Test
+    public void testRewriteOtherMessages() {
+        LOG4J_LOGGER.info(Log4jSecurityMarkers.CONFIDENTIAL, new StringFormattedMessage("user=%s ssn=%s", "jdoe", Sensitive.of(SSN)));
+        LOG4J_LOGGER.info(Log4jSecurityMarkers.CONFIDENTIAL, new ObjectMessage(SSN));
+        LOG4J_LOGGER.info(Log4jSecurityMarkers.CONFIDENTIAL, new MapMessage().with("user", "jdoe").with("ssn", SSN));
+        LOG4J_LOGGER.info(Log4jSecurityMarkers.SECURITY_AUDIT, new ObjectMessage(SSN));
+
+        List<LogEvent> events = appender.getEvents();
+        assertEquals("user=jdoe ssn=" + MaskingRewritePolicy.MASKED_PASSWORD, events.get(0).getMessage().getFormattedMessage());
+        assertEquals(MaskingRewritePolicy.MASKED_PASSWORD, events.get(1).getMessage().getFormattedMessage());
+        Message map = events.get(2).getMessage();
+        assertTrue(map instanceof MapMessage);
+        assertFalse(map.getFormattedMessage().contains(SSN));
+        assertEquals(MaskingRewritePolicy.MASKED_PASSWORD, ((MapMessage) map).get("ssn"));
+        assertEquals(SSN, events.get(3).getMessage().getFormattedMessage());
+    }
+
+    @Test
+    public void testMaskFormatMismatch() {
+        // a conversion that does not accept the mask leaves the format as is
+        Message masked = MaskingRewritePolicy.createPolicy().mask(new StringFormattedMessage("ssn=%d", 123456789));
+        assertEquals("ssn=%d", masked.getFormattedMessage());
+    }
+
+    @Test
+    public void testTokens() {
+        System.setProperty("MASKING_REWRITE_POLICY_TEST_KEY", "secret");
+        try {
+            MaskingRewritePolicy policy = MaskingRewritePolicy.createPolicy("token", "MASKING_REWRITE_POLICY_TEST_KEY");
+            String token = new TokenMasker("secret".getBytes(StandardCharsets.UTF_8)).token(SSN);
+
+            Message masked = policy.mask(new ParameterizedMessage("user={} ssn={}", "jdoe", Sensitive.of(SSN)));
+            assertEquals("user=jdoe ssn=" + token, masked.getFormattedMessage());
+            assertEquals(token, policy.mask(new ObjectMessage(SSN)).getFormattedMessage());
+            assertEquals(token, ((MapMessage) policy.mask(new MapMessage().with("ssn", SSN))).get("ssn"));
+
+            // Sensitive parameters are tokenized without the CONFIDENTIAL marker too
+            LogEvent event = Log4jLogEvent.newBuilder().setMessage(new ParameterizedMessage("ssn={}", Sensitive.of(SSN))).build();
+            assertEquals("ssn=" + token, policy.rewrite(event).getMessage().getFormattedMessage());
+        } finally {
+            System.clearProperty("MASKING_REWRITE_POLICY_TEST_KEY");
+        }
+    }
+
     @Test
     public void testRewriteNoMarker() {
         System.out.println("running testRewriteNoMarker()");
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.owasp.security.logging.log4j.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.junit.LoggerContextRule;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.owasp.security.logging.mask.SecretDictionary;
+
+public class SecretMaskingConverterTest {
+
+    private static final String CONFIG = "log4j2.xml";
+
+    @ClassRule
+    public static LoggerContextRule context = new LoggerContextRule(CONFIG);
+
+    @Before
+    public void setUp() {
+        SecretDictionary.register("hunter2");
+    }
+
+    @After
+    public void tearDown() {
+        SecretDictionary.clear();
+    }
+
+    @Test
+    public void testFormattedMessage() {
+        LogEvent event = Log4jLogEvent.newBuilder().setMessage(new ParameterizedMessage("user {} has password {}", "jdoe", "hunter2")).build();
+        StringBuilder sb = new StringBuilder("hunter2 ");
+        SecretMaskingConverter.newInstance(context.getConfiguration(), null).format(event, sb);
+        assertEquals("hunter2 user jdoe has password ********", sb.toString());
+    }
+
+    @Test
+    public void testNestedPattern() {
+        PatternLayout layout = PatternLayout.newBuilder().withConfiguration(context.getConfiguration()).withPattern("%maskSecrets{%msg%n%ex}").build();
+        LogEvent event = Log4jLogEvent.newBuilder().setMessage(new SimpleMessage("login with hunter2")).setThrown(new IllegalStateException("bad password hunter2")).build();
+
+        String output = layout.toSerializable(event);
+        assertTrue(output, output.startsWith("login with ********"));
+        assertTrue(output, output.contains("java.lang.IllegalStateException: bad password ********"));
+        // the layout does not append the exception again
+        assertFalse(output, output.contains("hunter2"));
+    }
+}
@@ -0,0 +1,275 @@
+package org.owasp.security.logging.appender;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.owasp.security.logging.util.MarkerMatcher;
+import org.owasp.security.logging.util.RepeatTracker;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import ch.qos.logback.core.util.CachingDateFormatter;
+import ch.qos.logback.core.util.Duration;
+
+/**
+ * Collapses repeated events before they reach the attached appenders. Events are fingerprinted by marker, level, logger, message template and the values of selected MDC keys. The first event
+ * with a fingerprint is passed on and opens a window; identical events until the window closes are suppressed and, when it closes, replaced by a single event saying how many times the event was
+ * repeated and between which times:
+ *
+ * <pre>
+ * {@code
+ * <appender name="COLLAPSE" class="org.owasp.security.logging.appender.CollapsingAppender">
+ *     <window>10 seconds</window>
+ *     <maxKeys>10000</maxKeys>
+ *     <marker>SECURITY FAILURE</marker>
+ *     <mdcKey>ipAddress</mdcKey>
+ *     <appender-ref ref="SECURITY_FILE" />
+ * </appender>
+ * }
+ * </pre>
+ *
+ * If no marker is configured all events are collapsed; otherwise only events with one of the markers are, and the others are passed on unchanged.
+ */
+public class CollapsingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    private static final String REPEATED_MESSAGE = "{} [repeated {} times between {} and {}]";
+
+    private final AppenderAttachableImpl<ILoggingEvent> aai = new AppenderAttachableImpl<>();
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private final List<String> mdcKeys = new ArrayList<>();
+
+    private Duration window = Duration.buildBySeconds(10);
+
+    private int maxKeys = 10000;
+
+    private MarkerMatcher matcher;
+
+    private String[] fingerprintKeys;
+
+    private RepeatTracker<Fingerprint> tracker;
+
+    private ScheduledFuture<?> expiryTask;
+
+    private final CachingDateFormatter dateFormatter = new CachingDateFormatter("yyyy-MM-dd HH:mm:ss.SSS");
+
+    @Override
+    public void start() {
+        long windowMillis = window.getMilliseconds();
+        try {
+            tracker = new RepeatTracker<>(windowMillis, maxKeys);
+        } catch (IllegalArgumentException e) {
+            addError(String.format("Invalid window for [%s]", getName()), e);
+            return;
+        }
+        matcher = markerNames.isEmpty() ? null : MarkerMatcher.compile(markerNames);
+        fingerprintKeys = mdcKeys.toArray(new String[mdcKeys.size()]);
+
+        // close windows a few times per window length
+        long period = Math.max(windowMillis / 4, 1);
+        expiryTask = getContext().getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report(tracker.expire(System.currentTimeMillis()));
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+            expiryTask = null;
+        }
+        report(tracker.flush());
+        aai.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (matcher != null && !matcher.matches(event.getMarker())) {
+            aai.appendLoopOnAppenders(event);
+            return;
+        }
+
+        if (!tracker.isRepeat(new Fingerprint(event, fingerprintKeys), event.getTimeStamp())) {
+            aai.appendLoopOnAppenders(event);
+        }
+    }
+
+    private void report(List<RepeatTracker.Repeat<Fingerprint>> repeats) {
+        for (RepeatTracker.Repeat<Fingerprint> repeat : repeats) {
+            aai.appendLoopOnAppenders(repeatedEvent(repeat));
+        }
+    }
+
+    private ILoggingEvent repeatedEvent(RepeatTracker.Repeat<Fingerprint> repeat) {
+        Fingerprint fingerprint = repeat.getKey();
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerName(fingerprint.loggerName);
+        event.setLevel(fingerprint.level);
+        event.setMarker(fingerprint.marker);
+        event.setMessage(REPEATED_MESSAGE);
+        event.setArgumentArray(new Object[] { fingerprint.message, repeat.getCount(), dateFormatter.format(repeat.getFirst()), dateFormatter.format(repeat.getLast()) });
+        event.setTimeStamp(repeat.getLast());
+        event.setThreadName(Thread.currentThread().getName());
+        event.setMDCPropertyMap(fingerprint.mdc());
+        if (getContext() instanceof LoggerContext) {
+            event.setLoggerContextRemoteView(((LoggerContext) getContext()).getLoggerContextRemoteView());
+        }
+        return event;
+    }
+
+    /**
+     * Adds a marker of the events to collapse.
+     */
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+
+    /**
+     * Adds an MDC key whose value is part of the fingerprint of an event.
+     */
+    public void addMdcKey(String mdcKey) {
+        if (mdcKey != null) {
+            mdcKeys.add(mdcKey.trim());
+        }
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        addInfo("Attaching appender named [" + newAppender.getName() + "] to CollapsingAppender.");
+        aai.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return aai.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return aai.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return aai.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        aai.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return aai.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return aai.detachAppender(name);
+    }
+
+    /**
+     * What makes two events identical.
+     */
+    static final class Fingerprint {
+
+        final Marker marker;
+        final Level level;
+        final String loggerName;
+        final String message;
+        final String[] mdcKeys;
+        final String[] mdcValues;
+        private final int hash;
+
+        Fingerprint(ILoggingEvent event, String[] mdcKeys) {
+            this.marker = event.getMarker();
+            this.level = event.getLevel();
+            this.loggerName = event.getLoggerName();
+            this.message = event.getMessage();
+            this.mdcKeys = mdcKeys;
+            this.mdcValues = new String[mdcKeys.length];
+            if (mdcKeys.length > 0) {
+                Map<String, String> mdc = event.getMDCPropertyMap();
+                for (int i = 0; i < mdcKeys.length; i++) {
+                    mdcValues[i] = mdc.get(mdcKeys[i]);
+                }
+            }
+
+            int h = marker == null ? 0 : marker.getName().hashCode();
+            h = 31 * h + (level == null ? 0 : level.toInt());
+            h = 31 * h + (loggerName == null ? 0 : loggerName.hashCode());
+            h = 31 * h + (message == null ? 0 : message.hashCode());
+            h = 31 * h + Arrays.hashCode(mdcValues);
+            this.hash = h;
+        }
+
+        Map<String, String> mdc() {
+            Map<String, String> mdc = new LinkedHashMap<>();
+            for (int i = 0; i < mdcKeys.length; i++) {
+                if (mdcValues[i] != null) {
+                    mdc.put(mdcKeys[i], mdcValues[i]);
+                }
+            }
+            return mdc;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            return hash == other.hash && level == other.level && equal(loggerName, other.loggerName) && equal(message, other.message) && sameMarker(marker, other.marker)
+                    && Arrays.equals(mdcValues, other.mdcValues);
+        }
+
+        private static boolean sameMarker(Marker a, Marker b) {
+            return a == b || (a != null && b != null && a.getName().equals(b.getName()));
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.owasp.security.logging.appender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A route of a {@link MarkerRoutingAppender}: events with any of the markers are sent to the named appender.
+ *
+ * <pre>
+ * {@code
+ * <route>
+ *     <marker>SECURITY SUCCESS</marker>
+ *     <marker>SECURITY FAILURE</marker>
+ *     <marker>SECURITY AUDIT</marker>
+ *     <appender>SECURITY_FILE</appender>
+ *     <async>true</async>
+ * </route>
+ * }
+ * </pre>
+ */
+public class MarkerRoute {
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private String appender;
+
+    private boolean async = false;
+
+    public List<String> getMarkerNames() {
+        return markerNames;
+    }
+
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+
+    public String getAppender() {
+        return appender;
+    }
+
+    /**
+     * Sets the name of the appender to send the events to. It must be attached to the routing appender with an appender-ref.
+     */
+    public void setAppender(String appender) {
+        if (appender != null) {
+            this.appender = appender.trim();
+        }
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * If true, events are queued and sent to the appender by a separate thread.
+     */
+    public void setAsync(String input) {
+        if (input != null) {
+            async = Boolean.valueOf(input);
+        }
+    }
+}
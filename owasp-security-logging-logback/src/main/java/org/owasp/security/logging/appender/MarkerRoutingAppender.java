@@ -0,0 +1,221 @@
+package org.owasp.security.logging.appender;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.owasp.security.logging.util.MarkerIndex;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/**
+ * Sends each event to the appenders of the {@link MarkerRoute}s matching its markers. The marker graph of an event is walked once and the routes are selected with bit operations on the result,
+ * instead of every appender evaluating its own filter chain. A route without markers is the default route and receives the events no other route matches.
+ *
+ * <pre>
+ * {@code
+ * <appender name="ROUTER" class="org.owasp.security.logging.appender.MarkerRoutingAppender">
+ *     <appender-ref ref="SECURITY_FILE" />
+ *     <appender-ref ref="CLASSIFIED_FILE" />
+ *     <appender-ref ref="APP_FILE" />
+ *     <route>
+ *         <marker>SECURITY SUCCESS</marker>
+ *         <marker>SECURITY FAILURE</marker>
+ *         <marker>SECURITY AUDIT</marker>
+ *         <appender>SECURITY_FILE</appender>
+ *         <async>true</async>
+ *     </route>
+ *     <route>
+ *         <marker>RESTRICTED</marker>
+ *         <marker>CONFIDENTIAL</marker>
+ *         <marker>SECRET</marker>
+ *         <marker>TOPSECRET</marker>
+ *         <appender>CLASSIFIED_FILE</appender>
+ *     </route>
+ *     <route>
+ *         <appender>APP_FILE</appender>
+ *     </route>
+ * </appender>
+ * }
+ * </pre>
+ *
+ * Routes marked async get their own queue, of queueSize events, and worker thread. Queued security events are never discarded.
+ */
+public class MarkerRoutingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    private static final int MAX_TARGETS = 64;
+
+    private final AppenderAttachableImpl<ILoggingEvent> aai = new AppenderAttachableImpl<>();
+
+    private final List<MarkerRoute> routes = new ArrayList<>();
+
+    private int queueSize = AsyncAppender.DEFAULT_QUEUE_SIZE;
+
+    private MarkerIndex index;
+
+    // the route table: marker bits and target of each route, and the target of the default route
+    private long[] routeBits;
+    private int[] routeTargets;
+    private int defaultTarget;
+
+    private Appender<ILoggingEvent>[] targets;
+
+    private final List<AsyncAppender> queues = new ArrayList<>();
+
+    @Override
+    public void start() {
+        List<String> markerNames = new ArrayList<>();
+        for (MarkerRoute route : routes) {
+            markerNames.addAll(route.getMarkerNames());
+        }
+        try {
+            index = MarkerIndex.build(markerNames);
+        } catch (IllegalArgumentException e) {
+            addError(String.format("Invalid routes for [%s]", getName()), e);
+            return;
+        }
+
+        // resolve each appender once, wrapping it in a queue if any route to it is async
+        Map<String, Boolean> async = new LinkedHashMap<>();
+        for (MarkerRoute route : routes) {
+            if (route.getAppender() == null || aai.getAppender(route.getAppender()) == null) {
+                addError(String.format("Route of [%s] to [%s] needs an attached appender", getName(), route.getAppender()));
+                return;
+            }
+            Boolean previous = async.get(route.getAppender());
+            async.put(route.getAppender(), route.isAsync() || Boolean.TRUE.equals(previous));
+        }
+        if (async.size() > MAX_TARGETS) {
+            addError(String.format("Too many appenders for [%s], at most %d are supported", getName(), MAX_TARGETS));
+            return;
+        }
+
+        List<String> targetNames = new ArrayList<>(async.keySet());
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Appender<ILoggingEvent>[] created = new Appender[targetNames.size()];
+        targets = created;
+        for (int i = 0; i < targets.length; i++) {
+            Appender<ILoggingEvent> appender = aai.getAppender(targetNames.get(i));
+            targets[i] = async.get(targetNames.get(i)) ? queue(appender) : appender;
+        }
+
+        List<MarkerRoute> markerRoutes = new ArrayList<>();
+        defaultTarget = -1;
+        for (MarkerRoute route : routes) {
+            if (route.getMarkerNames().isEmpty()) {
+                defaultTarget = targetNames.indexOf(route.getAppender());
+            } else {
+                markerRoutes.add(route);
+            }
+        }
+        routeBits = new long[markerRoutes.size()];
+        routeTargets = new int[markerRoutes.size()];
+        for (int i = 0; i < routeBits.length; i++) {
+            routeBits[i] = index.maskOf(markerRoutes.get(i).getMarkerNames());
+            routeTargets[i] = targetNames.indexOf(markerRoutes.get(i).getAppender());
+        }
+        super.start();
+    }
+
+    private Appender<ILoggingEvent> queue(Appender<ILoggingEvent> appender) {
+        AsyncAppender queue = new AsyncAppender();
+        queue.setContext(getContext());
+        queue.setName(getName() + "-" + appender.getName());
+        queue.setQueueSize(queueSize);
+        queue.setDiscardingThreshold(0);
+        queue.addAppender(appender);
+        queue.start();
+        queues.add(queue);
+        return queue;
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        for (AsyncAppender queue : queues) {
+            queue.stop();
+        }
+        queues.clear();
+        aai.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        long eventMask = index.maskOf(event.getMarker());
+
+        // send the event to each matching target once
+        long sent = 0L;
+        if (eventMask != 0) {
+            for (int i = 0; i < routeBits.length; i++) {
+                if ((eventMask & routeBits[i]) != 0) {
+                    long target = 1L << routeTargets[i];
+                    if ((sent & target) == 0) {
+                        sent |= target;
+                        targets[routeTargets[i]].doAppend(event);
+                    }
+                }
+            }
+        }
+
+        if (sent == 0 && defaultTarget >= 0) {
+            targets[defaultTarget].doAppend(event);
+        }
+    }
+
+    public void addRoute(MarkerRoute route) {
+        routes.add(route);
+    }
+
+    /**
+     * Sets the capacity of the queue of each async route.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        addInfo("Attaching appender named [" + newAppender.getName() + "] to MarkerRoutingAppender.");
+        aai.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return aai.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return aai.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return aai.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        aai.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return aai.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return aai.detachAppender(name);
+    }
+}
@@ -0,0 +1,129 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.owasp.security.logging.util.MarkerIndex;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Evaluates an ordered table of {@link FilterRule}s in a single pass. The reply of the first rule that matches the event is returned; if no rule matches, the default reply (NEUTRAL unless
+ * configured) is returned. This replaces chains of {@link SecurityMarkerFilter}, {@link ExcludeClassifiedMarkerFilter} and {@link MarkerFilter}s on an appender:
+ *
+ * <pre>
+ * {@code
+ * <filter class="org.owasp.security.logging.filter.CompositeSecurityFilter">
+ *     <rule>
+ *         <marker>RESTRICTED</marker>
+ *         <marker>CONFIDENTIAL</marker>
+ *         <marker>SECRET</marker>
+ *         <marker>TOPSECRET</marker>
+ *         <reply>DENY</reply>
+ *     </rule>
+ *     <rule>
+ *         <marker>SECURITY SUCCESS</marker>
+ *         <marker>SECURITY FAILURE</marker>
+ *         <marker>SECURITY AUDIT</marker>
+ *         <reply>ACCEPT</reply>
+ *     </rule>
+ *     <defaultReply>DENY</defaultReply>
+ * </filter>
+ * }
+ * </pre>
+ *
+ * At start() every marker named by the rules is assigned a bit. The marker graph of an event is then walked once, and each rule is a couple of integer comparisons against the resulting mask.
+ */
+public class CompositeSecurityFilter extends Filter<ILoggingEvent> {
+
+    private final List<FilterRule> rules = new ArrayList<>();
+
+    private FilterReply defaultReply = FilterReply.NEUTRAL;
+
+    private MarkerIndex index;
+
+    // the compiled rule table, one array slot per rule
+    private long[] markerMasks;
+    private int[] levelMins;
+    private int[] levelMaxs;
+    private String[] loggers;
+    private FilterReply[] replies;
+
+    @Override
+    public void start() {
+        Set<String> markerNames = new LinkedHashSet<>();
+        for (FilterRule rule : rules) {
+            markerNames.addAll(rule.getMarkerNames());
+        }
+        try {
+            index = MarkerIndex.build(markerNames);
+        } catch (IllegalArgumentException e) {
+            addError(String.format("Invalid marker rules for [%s]", getName()), e);
+            return;
+        }
+
+        int size = rules.size();
+        markerMasks = new long[size];
+        levelMins = new int[size];
+        levelMaxs = new int[size];
+        loggers = new String[size];
+        replies = new FilterReply[size];
+        for (int i = 0; i < size; i++) {
+            FilterRule rule = rules.get(i);
+            markerMasks[i] = index.maskOf(rule.getMarkerNames());
+            levelMins[i] = rule.getLevelMin() == null ? Integer.MIN_VALUE : rule.getLevelMin().toInt();
+            levelMaxs[i] = rule.getLevelMax() == null ? Integer.MAX_VALUE : rule.getLevelMax().toInt();
+            loggers[i] = rule.getLogger();
+            replies[i] = rule.getReply();
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // walk the marker graph once for all rules
+        long eventMask = index.maskOf(event.getMarker());
+        int level = event.getLevel().toInt();
+        String loggerName = event.getLoggerName();
+
+        for (int i = 0; i < replies.length; i++) {
+            long markerMask = markerMasks[i];
+            if (markerMask != 0 && (eventMask & markerMask) == 0) {
+                continue;
+            }
+            if (level < levelMins[i] || level > levelMaxs[i]) {
+                continue;
+            }
+            if (loggers[i] != null && !isDescendant(loggerName, loggers[i])) {
+                continue;
+            }
+            return replies[i];
+        }
+        return defaultReply;
+    }
+
+    private static boolean isDescendant(String loggerName, String ancestor) {
+        if (loggerName == null || !loggerName.startsWith(ancestor)) {
+            return false;
+        }
+        return loggerName.length() == ancestor.length() || loggerName.charAt(ancestor.length()) == '.';
+    }
+
+    public void addRule(FilterRule rule) {
+        rules.add(rule);
+    }
+
+    public void setDefaultReply(String input) {
+        if (input != null) {
+            defaultReply = FilterReply.valueOf(input.trim().toUpperCase());
+        }
+    }
+}
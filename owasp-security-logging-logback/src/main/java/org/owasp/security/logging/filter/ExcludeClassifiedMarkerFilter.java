@@ -1,9 +1,12 @@
 package org.owasp.security.logging.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.util.MarkerMatcher;
 import org.slf4j.Marker;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -14,19 +17,27 @@ import ch.qos.logback.core.spi.FilterReply;
  * Filters logging for information classification markers. If a logging event has a an information classification marker (RESTRICTED, CONFIDENTIAL, SECRET, TOP_SECRET) attached to it, it will fail the
  * filter.
  *
- * This is useful to <i>exclude</i> classified information from a general log file.
+ * This is useful to <i>exclude</i> classified information from a general log file. A different set of markers to exclude can be configured per filter instance with <code>&lt;marker&gt;</code>
+ * elements.
  *
  * @author August Detlefsen [augustd@codemagi.com]
  */
 public class ExcludeClassifiedMarkerFilter extends AbstractMatcherFilter<ILoggingEvent> {
 
-    public static final List<Marker> markersToMatch = new ArrayList<>(4);
+    /**
+     * Markers matched when no marker is configured.
+     */
+    public static final List<Marker> markersToMatch = Collections
+            .unmodifiableList(Arrays.asList(SecurityMarkers.RESTRICTED, SecurityMarkers.CONFIDENTIAL, SecurityMarkers.SECRET, SecurityMarkers.TOP_SECRET));
 
-    static {
-        markersToMatch.add(SecurityMarkers.RESTRICTED);
-        markersToMatch.add(SecurityMarkers.CONFIDENTIAL);
-        markersToMatch.add(SecurityMarkers.SECRET);
-        markersToMatch.add(SecurityMarkers.TOP_SECRET);
+    private final List<String> markerNames = new ArrayList<>();
+
+    private MarkerMatcher matcher;
+
+    @Override
+    public void start() {
+        matcher = SecurityMarkerFilter.compile(markerNames, markersToMatch);
+        super.start();
     }
 
     @Override
@@ -41,22 +52,20 @@ public class ExcludeClassifiedMarkerFilter extends AbstractMatcherFilter<ILoggin
             return FilterReply.NEUTRAL;
         }
 
-        if (eventMarker.hasReferences()) {
-            // check for events with multiple markers
-            for (Marker marker : markersToMatch) {
-                if (eventMarker.contains(marker)) {
-                    return FilterReply.DENY;
-                }
-            }
-        } else {
-            // handle simple case of an event with a single marker
-            if (markersToMatch.contains(eventMarker)) {
-                return FilterReply.DENY;
-            }
+        if (matcher.matches(eventMarker)) {
+            return FilterReply.DENY;
         }
 
         // no classified markers found
         return FilterReply.NEUTRAL;
     }
 
+    /**
+     * Adds a marker to exclude. Takes effect the next time the filter is started.
+     */
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
 }
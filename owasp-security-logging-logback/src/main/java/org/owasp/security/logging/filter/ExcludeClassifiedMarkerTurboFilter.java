@@ -0,0 +1,100 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.owasp.security.logging.MultiMarker;
+import org.owasp.security.logging.util.IdentityCache;
+import org.owasp.security.logging.util.MarkerMatcher;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * TurboFilter variant of {@link ExcludeClassifiedMarkerFilter}. Events with an information classification marker (RESTRICTED, CONFIDENTIAL, SECRET, TOP_SECRET) are denied before Logback builds a
+ * logging event for them.
+ *
+ * Unlike {@link ExcludeClassifiedMarkerFilter} this filter applies to the whole logger context, so classified events are not logged anywhere. Use it when no appender should ever receive them:
+ *
+ * <pre>
+ * {@code
+ * <turboFilter class="org.owasp.security.logging.filter.ExcludeClassifiedMarkerTurboFilter" />
+ * }
+ * </pre>
+ *
+ * Decisions are cached by marker identity for simple markers and for {@link MultiMarker}s that only reference simple markers.
+ */
+public class ExcludeClassifiedMarkerTurboFilter extends TurboFilter {
+
+    private static final int MAX_CACHED_MARKERS = 256;
+
+    private final IdentityCache<Marker, FilterReply> decisions = new IdentityCache<>(MAX_CACHED_MARKERS);
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private MarkerMatcher matcher;
+
+    @Override
+    public void start() {
+        matcher = SecurityMarkerFilter.compile(markerNames, ExcludeClassifiedMarkerFilter.markersToMatch);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // make sure the event has a marker
+        if (marker == null) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // the references of most markers may change, so only immutable marker graphs are cached
+        if (!isCacheable(marker)) {
+            return match(marker);
+        }
+
+        FilterReply reply = decisions.get(marker);
+        if (reply == null) {
+            reply = match(marker);
+            decisions.put(marker, reply);
+        }
+        return reply;
+    }
+
+    private static boolean isCacheable(Marker marker) {
+        if (marker instanceof MultiMarker) {
+            return !((MultiMarker) marker).hasNestedReferences();
+        }
+        return !marker.hasReferences();
+    }
+
+    private FilterReply match(Marker eventMarker) {
+        if (matcher.matches(eventMarker)) {
+            return FilterReply.DENY;
+        }
+
+        // no classified markers found
+        return FilterReply.NEUTRAL;
+    }
+
+    @Override
+    public void stop() {
+        decisions.clear();
+        super.stop();
+    }
+
+    /**
+     * Adds a marker to match. Takes effect the next time the filter is started.
+     */
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+}
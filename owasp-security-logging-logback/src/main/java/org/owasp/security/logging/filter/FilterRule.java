@@ -0,0 +1,89 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * A rule of a {@link CompositeSecurityFilter}. An event matches the rule if it has one of the rule's markers, its level is within the rule's level range and its logger is the rule's logger or one
+ * of its descendants. Conditions that are not configured always match.
+ *
+ * <pre>
+ * {@code
+ * <rule>
+ *     <marker>SECURITY FAILURE</marker>
+ *     <marker>SECURITY AUDIT</marker>
+ *     <levelMin>WARN</levelMin>
+ *     <logger>com.example.auth</logger>
+ *     <reply>ACCEPT</reply>
+ * </rule>
+ * }
+ * </pre>
+ */
+public class FilterRule {
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private Level levelMin;
+
+    private Level levelMax;
+
+    private String logger;
+
+    private FilterReply reply = FilterReply.NEUTRAL;
+
+    public List<String> getMarkerNames() {
+        return markerNames;
+    }
+
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+
+    public Level getLevelMin() {
+        return levelMin;
+    }
+
+    public void setLevelMin(String input) {
+        if (input != null) {
+            levelMin = Level.toLevel(input.trim());
+        }
+    }
+
+    public Level getLevelMax() {
+        return levelMax;
+    }
+
+    public void setLevelMax(String input) {
+        if (input != null) {
+            levelMax = Level.toLevel(input.trim());
+        }
+    }
+
+    public String getLogger() {
+        return logger;
+    }
+
+    /**
+     * Restricts the rule to a logger and its descendants.
+     */
+    public void setLogger(String input) {
+        if (input != null) {
+            logger = input.trim();
+        }
+    }
+
+    public FilterReply getReply() {
+        return reply;
+    }
+
+    public void setReply(String input) {
+        if (input != null) {
+            reply = FilterReply.valueOf(input.trim().toUpperCase());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.owasp.security.logging.util.KeyedRateLimiter;
+import org.owasp.security.logging.util.MarkerIndex;
+import org.slf4j.Logger;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.util.Duration;
+
+/**
+ * Limits the rate of marked events per source. Events are keyed by the marker they carry and the value of an MDC field, such as the remote IP address set by {@link MDCFilter}, and each key gets a
+ * token bucket. Events over the limit are denied; all other events pass as NEUTRAL.
+ *
+ * So that no evidence is silently lost, the number of suppressed events per key is logged periodically as a SECURITY AUDIT event through the summary logger, and these summaries are never
+ * limited. By default SECURITY FAILURE events are limited per IP address:
+ *
+ * <pre>
+ * {@code
+ * <filter class="org.owasp.security.logging.filter.RateLimitingFilter">
+ *     <marker>SECURITY FAILURE</marker>
+ *     <mdcKey>ipAddress</mdcKey>
+ *     <rate>10</rate>
+ *     <burst>20</burst>
+ *     <maxKeys>10000</maxKeys>
+ *     <summaryPeriod>1 minute</summaryPeriod>
+ * </filter>
+ * }
+ * </pre>
+ */
+public class RateLimitingFilter extends Filter<ILoggingEvent> {
+
+    /**
+     * Key used for events without the MDC field.
+     */
+    public static final String UNKNOWN_KEY = "-";
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private String mdcKey = MDCFilter.IPADDRESS;
+
+    private double rate = 10;
+
+    private int burst = 20;
+
+    private int maxKeys = 10000;
+
+    private Duration summaryPeriod = Duration.buildByMinutes(1);
+
+    private String summaryLogger = RateLimitingFilter.class.getName();
+
+    private MarkerIndex index;
+
+    // one bucket table per limited marker
+    private String[] limitedNames;
+    private long[] limitedBits;
+    private KeyedRateLimiter[] limiters;
+
+    private ScheduledFuture<?> summaryTask;
+
+    @Override
+    public void start() {
+        List<String> names = markerNames.isEmpty() ? Collections.singletonList(SecurityMarkers.SECURITY_FAILURE_MARKER_NAME) : markerNames;
+        try {
+            index = MarkerIndex.build(names);
+            limitedNames = new String[names.size()];
+            limitedBits = new long[names.size()];
+            limiters = new KeyedRateLimiter[names.size()];
+            for (int i = 0; i < limiters.length; i++) {
+                limitedNames[i] = names.get(i);
+                limitedBits[i] = index.bitOf(limitedNames[i]);
+                limiters[i] = new KeyedRateLimiter(rate, burst, maxKeys);
+            }
+        } catch (IllegalArgumentException e) {
+            addError(String.format("Invalid rate limit for [%s]", getName()), e);
+            return;
+        }
+
+        long period = summaryPeriod.getMilliseconds();
+        if (getContext() != null && period > 0) {
+            summaryTask = getContext().getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    reportSuppressed();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (summaryTask != null) {
+            summaryTask.cancel(false);
+            summaryTask = null;
+        }
+        super.stop();
+        reportSuppressed();
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        long eventMask = index.maskOf(event.getMarker());
+        if (eventMask == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        // the summaries of suppressed events pass without taking a permit
+        if (event.getMarker() == SecurityMarkers.SECURITY_AUDIT && summaryLogger.equals(event.getLoggerName())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        for (int i = 0; i < limiters.length; i++) {
+            if ((eventMask & limitedBits[i]) != 0) {
+                String key = event.getMDCPropertyMap().get(mdcKey);
+                return limiters[i].tryAcquire(key == null ? UNKNOWN_KEY : key) ? FilterReply.NEUTRAL : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * Logs the number of events suppressed per key since the last report.
+     */
+    public void reportSuppressed() {
+        if (limiters == null || !(getContext() instanceof LoggerContext)) {
+            return;
+        }
+        Logger logger = ((LoggerContext) getContext()).getLogger(summaryLogger);
+        for (int i = 0; i < limiters.length; i++) {
+            for (Map.Entry<String, Long> entry : limiters[i].drainSuppressed().entrySet()) {
+                logger.warn(SecurityMarkers.SECURITY_AUDIT, "Rate limit suppressed {} {} events for {}={}", entry.getValue(), limitedNames[i], mdcKey, entry.getKey());
+            }
+        }
+    }
+
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * Sets the sustained number of events per second allowed for each key.
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Sets the number of events a key may log at once before it is limited.
+     */
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public void setSummaryPeriod(Duration summaryPeriod) {
+        this.summaryPeriod = summaryPeriod;
+    }
+
+    public void setSummaryLogger(String summaryLogger) {
+        this.summaryLogger = summaryLogger;
+    }
+}
@@ -0,0 +1,41 @@
+package org.owasp.security.logging.filter;
+
+/**
+ * Fraction of the events with a marker that a {@link SamplingFilter} keeps.
+ *
+ * <pre>
+ * {@code
+ * <sample>
+ *     <marker>EVENT SUCCESS</marker>
+ *     <rate>0.05</rate>
+ * </sample>
+ * }
+ * </pre>
+ */
+public class SampleRate {
+
+    private String marker;
+
+    private double rate = 1.0;
+
+    public String getMarker() {
+        return marker;
+    }
+
+    public void setMarker(String marker) {
+        if (marker != null) {
+            this.marker = marker.trim();
+        }
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the fraction of events to keep, between 0 and 1.
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,184 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.owasp.security.logging.util.MarkerIndex;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Keeps a sample of high-volume events. Each configured marker has a rate, the fraction of its events to keep; events that are not sampled are denied and all other events pass as NEUTRAL, so
+ * failures are always logged unless a rate is configured for them.
+ *
+ * The decision is a hash of an MDC field, the session by default, so all events of a session are either kept or dropped together. Events without the field are sampled at random.
+ *
+ * <pre>
+ * {@code
+ * <filter class="org.owasp.security.logging.filter.SamplingFilter">
+ *     <mdcKey>session</mdcKey>
+ *     <sample>
+ *         <marker>EVENT SUCCESS</marker>
+ *         <rate>0.05</rate>
+ *     </sample>
+ *     <sample>
+ *         <marker>SECURITY SUCCESS</marker>
+ *         <rate>0.5</rate>
+ *     </sample>
+ * </filter>
+ * }
+ * </pre>
+ *
+ * Without samples, EVENT SUCCESS and SECURITY SUCCESS events are sampled at the default rate. The number of dropped events is available from {@link #getSampledOut()} so that counts can be
+ * re-scaled.
+ */
+public class SamplingFilter extends Filter<ILoggingEvent> {
+
+    private static final double SAMPLE_SPACE = 1L << 32;
+
+    private final List<SampleRate> samples = new ArrayList<>();
+
+    private String mdcKey = MDCFilter.SESSION;
+
+    private double defaultRate = 0.1;
+
+    private MarkerIndex index;
+
+    // one slot per sampled marker
+    private String[] sampledNames;
+    private long[] sampledBits;
+    private long[] thresholds;
+    private AtomicLong[] sampledOut;
+
+    @Override
+    public void start() {
+        List<SampleRate> rates = samples;
+        if (rates.isEmpty()) {
+            rates = new ArrayList<>();
+            for (String name : new String[] { SecurityMarkers.EVENT_SUCCESS_MARKER_NAME, SecurityMarkers.SECURITY_SUCCESS_MARKER_NAME }) {
+                SampleRate rate = new SampleRate();
+                rate.setMarker(name);
+                rate.setRate(defaultRate);
+                rates.add(rate);
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        for (SampleRate rate : rates) {
+            if (rate.getMarker() == null || rate.getRate() < 0 || rate.getRate() > 1) {
+                addError(String.format("Each sample of [%s] needs a marker and a rate between 0 and 1", getName()));
+                return;
+            }
+            names.add(rate.getMarker());
+        }
+        try {
+            index = MarkerIndex.build(names);
+        } catch (IllegalArgumentException e) {
+            addError(String.format("Invalid samples for [%s]", getName()), e);
+            return;
+        }
+
+        int size = rates.size();
+        sampledNames = new String[size];
+        sampledBits = new long[size];
+        thresholds = new long[size];
+        sampledOut = new AtomicLong[size];
+        for (int i = 0; i < size; i++) {
+            sampledNames[i] = names.get(i);
+            sampledBits[i] = index.bitOf(sampledNames[i]);
+            thresholds[i] = (long) (rates.get(i).getRate() * SAMPLE_SPACE);
+            sampledOut[i] = new AtomicLong();
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        long eventMask = index.maskOf(event.getMarker());
+        if (eventMask == 0) {
+            return FilterReply.NEUTRAL;
+        }
+
+        for (int i = 0; i < thresholds.length; i++) {
+            if ((eventMask & sampledBits[i]) != 0) {
+                if (sample(event.getMDCPropertyMap().get(mdcKey)) < thresholds[i]) {
+                    return FilterReply.NEUTRAL;
+                }
+                sampledOut[i].incrementAndGet();
+                return FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    // a value in [0, 2^32), the same for every event with the same key
+    private static long sample(String key) {
+        int h;
+        if (key == null) {
+            h = ThreadLocalRandom.current().nextInt();
+        } else {
+            // spread the bits of the string hash (murmur3 finalizer)
+            h = key.hashCode();
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+        }
+        return h & 0xffffffffL;
+    }
+
+    /**
+     * @return the number of events dropped by this filter
+     */
+    public long getSampledOut() {
+        long total = 0;
+        if (sampledOut != null) {
+            for (AtomicLong count : sampledOut) {
+                total += count.get();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param markerName
+     *            a sampled marker
+     * @return the number of events with this marker dropped by this filter
+     */
+    public long getSampledOut(String markerName) {
+        if (sampledNames != null) {
+            for (int i = 0; i < sampledNames.length; i++) {
+                if (sampledNames[i].equals(markerName)) {
+                    return sampledOut[i].get();
+                }
+            }
+        }
+        return 0;
+    }
+
+    public void addSample(SampleRate sample) {
+        samples.add(sample);
+    }
+
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * Sets the rate used when no samples are configured.
+     */
+    public void setDefaultRate(double defaultRate) {
+        this.defaultRate = defaultRate;
+    }
+}
@@ -1,9 +1,12 @@
 package org.owasp.security.logging.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.util.MarkerMatcher;
 import org.slf4j.Marker;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -24,19 +27,53 @@ import ch.qos.logback.core.spi.FilterReply;
  * }
  * </pre>
  * 
+ * By default the SECURITY SUCCESS, SECURITY FAILURE and SECURITY AUDIT markers are matched. A different set can be configured per filter instance:
+ * 
+ * <pre>
+ * {@code
+ * <filter class="org.owasp.security.logging.filter.SecurityMarkerFilter">
+ *     <marker>SECURITY AUDIT</marker>
+ *     <marker>PAYMENT</marker>
+ * </filter>
+ * }
+ * </pre>
+ * 
  * @author August Detlefsen [augustd@codemagi.com]
  */
 public class SecurityMarkerFilter extends AbstractMatcherFilter<ILoggingEvent> {
 
-    public static final List<Marker> markersToMatch = new ArrayList<>(3);
-    static {
-        markersToMatch.add(SecurityMarkers.SECURITY_SUCCESS);
-        markersToMatch.add(SecurityMarkers.SECURITY_FAILURE);
-        markersToMatch.add(SecurityMarkers.SECURITY_AUDIT);
-    }
+    /**
+     * Markers matched when no marker is configured.
+     */
+    public static final List<Marker> markersToMatch = Collections
+            .unmodifiableList(Arrays.asList(SecurityMarkers.SECURITY_SUCCESS, SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.SECURITY_AUDIT));
 
     private boolean acceptAll = false;
 
+    private final List<String> markerNames = new ArrayList<>();
+
+    private MarkerMatcher matcher;
+
+    @Override
+    public void start() {
+        matcher = compile(markerNames, markersToMatch);
+        super.start();
+    }
+
+    /**
+     * Compiles the configured marker names, or the names of the default markers if none are configured.
+     */
+    static MarkerMatcher compile(List<String> markerNames, List<Marker> defaultMarkers) {
+        if (!markerNames.isEmpty()) {
+            return MarkerMatcher.compile(markerNames);
+        }
+        List<String> defaultNames = new ArrayList<>(defaultMarkers.size());
+        for (Marker marker : defaultMarkers) {
+            defaultNames.add(marker.getName());
+        }
+        return MarkerMatcher.compile(defaultNames);
+    }
+
     @Override
     public FilterReply decide(ILoggingEvent event) {
         if (!isStarted()) {
@@ -50,18 +87,8 @@ public class SecurityMarkerFilter extends AbstractMatcherFilter<ILoggingEvent> {
             return FilterReply.DENY;
         }
 
-        if (eventMarker.hasReferences()) {
-            // check for events with multiple markers
-            for (Marker marker : markersToMatch) {
-                if (eventMarker.contains(marker)) {
-                    return acceptAll ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
-                }
-            }
-        } else {
-            // handle simple case of an event with a single marker
-            if (markersToMatch.contains(eventMarker)) {
-                return acceptAll ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
-            }
+        if (matcher.matches(eventMarker)) {
+            return acceptAll ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
         }
 
         // no match found for security markers
@@ -73,4 +100,13 @@ public class SecurityMarkerFilter extends AbstractMatcherFilter<ILoggingEvent> {
             acceptAll = Boolean.valueOf(input);
         }
     }
+
+    /**
+     * Adds a marker to match. Takes effect the next time the filter is started.
+     */
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
 }
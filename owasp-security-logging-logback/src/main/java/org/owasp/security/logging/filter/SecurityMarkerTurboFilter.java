@@ -0,0 +1,111 @@
+package org.owasp.security.logging.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.owasp.security.logging.MultiMarker;
+import org.owasp.security.logging.util.IdentityCache;
+import org.owasp.security.logging.util.MarkerMatcher;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * TurboFilter variant of {@link SecurityMarkerFilter}. The decision is made on the marker alone, before Logback builds a logging event, so non-security events are discarded without paying for
+ * caller data, argument arrays or MDC copies.
+ *
+ * Unlike {@link SecurityMarkerFilter} this filter applies to the whole logger context, not to a single appender. If acceptAll is true then security events are accepted even when they are below the
+ * level of their logger; otherwise they are passed on as NEUTRAL. To install the filter, add it to the top of logback.xml:
+ *
+ * <pre>
+ * {@code
+ * <turboFilter class="org.owasp.security.logging.filter.SecurityMarkerTurboFilter">
+ *     <acceptAll>false</acceptAll>
+ * </turboFilter>
+ * }
+ * </pre>
+ *
+ * Decisions are cached by marker identity for simple markers and for {@link MultiMarker}s that only reference simple markers.
+ */
+public class SecurityMarkerTurboFilter extends TurboFilter {
+
+    private static final int MAX_CACHED_MARKERS = 256;
+
+    private final IdentityCache<Marker, FilterReply> decisions = new IdentityCache<>(MAX_CACHED_MARKERS);
+
+    private boolean acceptAll = false;
+
+    private final List<String> markerNames = new ArrayList<>();
+
+    private MarkerMatcher matcher;
+
+    @Override
+    public void start() {
+        matcher = SecurityMarkerFilter.compile(markerNames, SecurityMarkerFilter.markersToMatch);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // make sure the event has a marker
+        if (marker == null) {
+            return FilterReply.DENY;
+        }
+
+        // the references of most markers may change, so only immutable marker graphs are cached
+        if (!isCacheable(marker)) {
+            return match(marker);
+        }
+
+        FilterReply reply = decisions.get(marker);
+        if (reply == null) {
+            reply = match(marker);
+            decisions.put(marker, reply);
+        }
+        return reply;
+    }
+
+    private static boolean isCacheable(Marker marker) {
+        if (marker instanceof MultiMarker) {
+            return !((MultiMarker) marker).hasNestedReferences();
+        }
+        return !marker.hasReferences();
+    }
+
+    private FilterReply match(Marker eventMarker) {
+        if (matcher.matches(eventMarker)) {
+            return acceptAll ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+        }
+
+        // no match found for security markers
+        return FilterReply.DENY;
+    }
+
+    @Override
+    public void stop() {
+        decisions.clear();
+        super.stop();
+    }
+
+    /**
+     * Adds a marker to match. Takes effect the next time the filter is started.
+     */
+    public void addMarker(String markerName) {
+        if (markerName != null) {
+            markerNames.add(markerName.trim());
+        }
+    }
+
+    public void setAcceptAll(String input) {
+        if (input != null) {
+            acceptAll = Boolean.valueOf(input);
+        }
+    }
+}
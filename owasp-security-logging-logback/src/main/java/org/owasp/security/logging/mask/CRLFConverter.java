@@ -1,31 +1,26 @@
 package org.owasp.security.logging.mask;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.pattern.CompositeConverter;
 
 /**
- * This converter is used to encode any carriage returns and line feeds to prevent log injection attacks
+ * This converter is used to encode any carriage returns and line feeds to prevent log injection attacks. See {@link SanitizingConverter} for other control characters and escape sequences.
  *
  * It is not possible to replace the actual formatted message, instead this converter returns a masked version of the message that can be accessed using the conversionWord specified in the
  * conversionRule definition in logback.xml.
+ *
+ * Line breaks are replaced where the child pattern appended them, so stacking this converter on others such as <code>%crlf(%mask)</code> does not copy the message.
  * 
  * @author August Detlefsen [augustd@codemagi.com]
  */
-public class CRLFConverter extends CompositeConverter<ILoggingEvent> {
-
-    @Override
-    protected String transform(ILoggingEvent event, String in) {
-        String clean = in.replace('\n', '_').replace('\r', '_');
+public class CRLFConverter extends StreamingCompositeConverter {
 
-        return clean;
-    }
-
-    /**
-     * Override start method because the superclass ReplacingCompositeConverter requires at least two options and this class has none.
-     */
     @Override
-    public void start() {
-        started = true;
+    protected void transform(ILoggingEvent event, StringBuilder buf, int start) {
+        for (int i = start, length = buf.length(); i < length; i++) {
+            char c = buf.charAt(i);
+            if (c == '\n' || c == '\r') {
+                buf.setCharAt(i, '_');
+            }
+        }
     }
-
 }
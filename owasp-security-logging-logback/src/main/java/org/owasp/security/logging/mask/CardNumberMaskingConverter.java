@@ -0,0 +1,34 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Masks payment card numbers in the formatted message, keeping the last four digits. Only digit runs of card number length that pass the Luhn checksum are masked, so order numbers and timestamps
+ * stay readable. See {@link CardNumberMasker}.
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="maskedPan" converterClass="org.owasp.security.logging.mask.CardNumberMaskingConverter" /&gt;
+ *
+ * %maskedPan
+ * </pre>
+ *
+ * Messages without a card number are returned as is.
+ */
+public class CardNumberMaskingConverter extends ClassicConverter implements StreamingConverter {
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return CardNumberMasker.mask(event.getFormattedMessage());
+    }
+
+    @Override
+    public void append(ILoggingEvent event, StringBuilder out) {
+        String message = event.getFormattedMessage();
+        if (message == null) {
+            out.append(message);
+        } else {
+            CardNumberMasker.mask(message, out);
+        }
+    }
+}
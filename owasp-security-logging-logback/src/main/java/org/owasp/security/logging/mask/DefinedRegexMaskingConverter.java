@@ -1,11 +1,5 @@
 package org.owasp.security.logging.mask;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.regex.Pattern;
-
 import ch.qos.logback.classic.pattern.ClassicConverter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 /**
@@ -17,43 +11,33 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
  * 
  * %maskedMsg{password|signature username, orderNumber|giftCardNum|, email }
  * 
+ * All rules are applied in a single pass over the message, and the message is returned as is if nothing needs to be masked. When the keys of an option are plain words, messages are first scanned
+ * for all keys at once, and only the rules whose keys occur are run.
+ * 
  * @author Rahul Agarwal
  *
  */
-public class DefinedRegexMaskingConverter extends ClassicConverter {
-    private Map<Pattern, String> patternMap = new HashMap<>();
-    private static final String MASK = "*****";
+public class DefinedRegexMaskingConverter extends ClassicConverter implements StreamingConverter {
+    private RegexMasker masker = RegexMasker.builder().build();
 
     @Override
     public String convert(ILoggingEvent logEvent) {
-        String message = logEvent.getMessage();
-        Set<Pattern> patternSet = patternMap.keySet();
+        return masker.mask(logEvent.getMessage());
+    }
 
-        if (message != null && !message.equals("")) {
-            for (Pattern pattern : patternSet) {
-                message = pattern.matcher(message).replaceAll(patternMap.get(pattern));
-            }
+    @Override
+    public void append(ILoggingEvent logEvent, StringBuilder out) {
+        String message = logEvent.getMessage();
+        if (message == null) {
+            out.append(message);
+        } else {
+            masker.mask(message, out);
         }
-
-        return message;
     }
 
     @Override
     public void start() {
-        List<String> options = getOptionList();
-        if (options != null && !options.isEmpty()) {
-            // 0 = CompleteMask
-            patternMap.put(Pattern.compile("(?x)([\"]?(" + options.get(0) + ")[\"]?\\s*[:=]{1}\\s*[\"]?)(?:[^\"\\n]+)"), "$1" + MASK);
-
-            // 1 = MaskLastFour
-            patternMap.put(Pattern.compile("(?x)([\"]?(" + options.get(1) + ")[\"]?[:=]{1}[\"]?[\\w.+/=]+)(?:[\\w.+/=]{4})"), "$1" + MASK);
-
-            // 2 = MaskFirstFour
-            patternMap.put(Pattern.compile("(?x)([\"]?(" + options.get(2) + ")[\"]?[:=]{1}[\"]?)(?:[\\w.+/=]+(?=\\w{4}))"), "$1" + MASK);
-
-            // 3 = emailMasking
-            patternMap.put(Pattern.compile("(?x)([\"]?(" + options.get(3) + ")[\"]?\\s*[:=]{1}\\s*[\"]?[\\w.]+(?=@[\\w.]+))(?:@[\\w.]+)"), "$1" + MASK);
-        }
+        masker = DefinedMaskingRules.compile(getOptionList());
         super.start();
     }
-}
\ No newline at end of file
+}
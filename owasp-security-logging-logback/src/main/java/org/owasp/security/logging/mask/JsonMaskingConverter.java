@@ -0,0 +1,60 @@
+package org.owasp.security.logging.mask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Masks the values of the given keys in the JSON of the formatted message, at any depth. Keys are listed as options, or separated by <code>|</code> like the options of
+ * {@link DefinedRegexMaskingConverter}, and are compared ignoring case. See {@link JsonKeyMasker}.
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="maskedJson" converterClass="org.owasp.security.logging.mask.JsonMaskingConverter" /&gt;
+ *
+ * %maskedJson{password, apiKey|ssn}
+ * </pre>
+ *
+ * The JSON is tokenized in a single pass without building a tree, text around it is left alone, and messages without a masked value are returned as is.
+ */
+public class JsonMaskingConverter extends ClassicConverter implements StreamingConverter {
+
+    private JsonKeyMasker masker = new JsonKeyMasker(Collections.<String> emptyList());
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return masker.mask(event.getFormattedMessage());
+    }
+
+    @Override
+    public void append(ILoggingEvent event, StringBuilder out) {
+        String message = event.getFormattedMessage();
+        if (message == null) {
+            out.append(message);
+        } else {
+            masker.mask(message, out);
+        }
+    }
+
+    @Override
+    public void start() {
+        List<String> keys = new ArrayList<>();
+        List<String> options = getOptionList();
+        if (options != null) {
+            for (String option : options) {
+                for (String key : option.split("\\|")) {
+                    if (!key.trim().isEmpty()) {
+                        keys.add(key.trim());
+                    }
+                }
+            }
+        }
+        masker = new JsonKeyMasker(keys);
+        if (masker.isEmpty()) {
+            addWarn("No JSON keys to mask, messages are written as is");
+        }
+        super.start();
+    }
+}
@@ -1,8 +1,10 @@
 package org.owasp.security.logging.mask;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import org.owasp.security.logging.SecurityMarkers;
-import org.slf4j.Marker;
-import org.slf4j.helpers.MessageFormatter;
+import org.owasp.security.logging.Sensitive;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.pattern.ReplacingCompositeConverter;
@@ -12,28 +14,144 @@ import ch.qos.logback.core.pattern.ReplacingCompositeConverter;
  *
  * It is not possible to replace the actual formatted message, instead this converter returns a masked version of the message that can be accessed using the conversionWord specified in the
  * conversionRule definition in logback.xml.
+ *
+ * Arguments wrapped in {@link Sensitive} are the only ones masked in a CONFIDENTIAL event that has any, so the rest of the message stays readable. Otherwise all arguments are masked.
+ *
+ * With the <code>token</code> option, <code>%mask{token}</code> or <code>%mask{token, KEY_NAME}</code>, each masked argument is replaced with a keyed token instead, so equal values can be
+ * correlated. The HMAC key is read from the context property, system property or environment variable KEY_NAME, {@value TokenMasker#DEFAULT_KEY_NAME} by default. Sensitive arguments are then
+ * replaced with their tokens in every event.
+ *
+ * The masked message is formatted into a per-thread buffer, or the buffer of an enclosing {@link StreamingCompositeConverter}, without modifying the event's arguments. Events that are not
+ * CONFIDENTIAL reuse the event's formatted message.
  * 
  * @author August Detlefsen [augustd@codemagi.com]
  * @author Sytze van Koningsveld
  */
-public class MaskingConverter extends ReplacingCompositeConverter<ILoggingEvent> {
+public class MaskingConverter extends ReplacingCompositeConverter<ILoggingEvent> implements StreamingConverter {
+
+    public static final String MASKED_PASSWORD = Sensitive.MASK;
+
+    /**
+     * Option that replaces masked arguments with keyed tokens.
+     */
+    public static final String TOKEN_OPTION = "token";
+
+    private static final String DELIMITER = "{}";
+
+    private static final char ESCAPE = '\\';
 
-    public static final String MASKED_PASSWORD = "********";
+    // buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    // tokens for masked arguments, or null to mask them with MASKED_PASSWORD
+    private TokenMasker tokens;
 
     @Override
     public String convert(ILoggingEvent event) {
-        Marker eventMarker = event.getMarker();
+        if (!isConfidential(event) && (tokens == null || !containsSensitive(event.getArgumentArray()))) {
+            return event.getFormattedMessage();
+        }
+        StringBuilder buffer = BUFFERS.get();
+        buffer.setLength(0);
+        append(event, buffer);
+        String masked = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFERS.remove();
+        }
+        return masked;
+    }
 
+    @Override
+    public void append(ILoggingEvent event, StringBuilder out) {
         Object[] args = event.getArgumentArray();
-        if (eventMarker != null && eventMarker.contains(SecurityMarkers.CONFIDENTIAL)) {
-            for (int i = 0; i < args.length; i++) {
-                args[i] = MASKED_PASSWORD;
+        if (isConfidential(event)) {
+            appendMasked(out, event.getMessage(), args, !containsSensitive(args), tokens);
+        } else if (tokens != null && containsSensitive(args)) {
+            appendMasked(out, event.getMessage(), args, false, tokens);
+        } else {
+            out.append(event.getFormattedMessage());
+        }
+    }
+
+    private static boolean isConfidential(ILoggingEvent event) {
+        return (SecurityMarkers.maskOf(event.getMarker()) & SecurityMarkers.CONFIDENTIAL_MASK) != 0;
+    }
+
+    private static boolean containsSensitive(Object[] args) {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof Sensitive) {
+                    return true;
+                }
             }
         }
+        return false;
+    }
 
-        String maskedMessage = MessageFormatter.arrayFormat(event.getMessage(), args).getMessage();
+    /**
+     * Formats a message the way {@link org.slf4j.helpers.MessageFormatter} does, substituting {@link #MASKED_PASSWORD}, or the token of the argument if tokens is set, for each {@link Sensitive}
+     * argument, or for every argument if maskAll is set. The arguments are left untouched.
+     */
+    static void appendMasked(StringBuilder buf, String pattern, Object[] args, boolean maskAll, TokenMasker tokens) {
+        if (pattern == null) {
+            return;
+        }
+        if (args == null) {
+            buf.append(pattern);
+            return;
+        }
+        int i = 0;
+        for (int arg = 0; arg < args.length; arg++) {
+            int j = pattern.indexOf(DELIMITER, i);
+            if (j == -1) {
+                break;
+            }
+            if (j > 0 && pattern.charAt(j - 1) == ESCAPE) {
+                if (j > 1 && pattern.charAt(j - 2) == ESCAPE) {
+                    // escaped escape, the placeholder is kept after a single escape char
+                    buf.append(pattern, i, j - 1);
+                    appendArgument(buf, args[arg], maskAll, tokens);
+                    i = j + 2;
+                } else {
+                    // escaped placeholder, output as is without consuming an argument
+                    arg--;
+                    buf.append(pattern, i, j - 1).append('{');
+                    i = j + 1;
+                }
+            } else {
+                buf.append(pattern, i, j);
+                appendArgument(buf, args[arg], maskAll, tokens);
+                i = j + 2;
+            }
+        }
+        buf.append(pattern, i, pattern.length());
+    }
 
-        return maskedMessage;
+    private static void appendArgument(StringBuilder buf, Object arg, boolean mask, TokenMasker tokens) {
+        if ((mask || arg instanceof Sensitive) && tokens != null) {
+            tokens.appendToken(arg, buf);
+        } else if (mask || arg instanceof Sensitive) {
+            buf.append(MASKED_PASSWORD);
+        } else if (arg instanceof Object[]) {
+            buf.append(Arrays.deepToString((Object[]) arg));
+        } else if (arg != null && arg.getClass().isArray()) {
+            // a primitive array, formatted as the single element of an Object array
+            String formatted = Arrays.deepToString(new Object[] { arg });
+            buf.append(formatted, 1, formatted.length() - 1);
+        } else {
+            try {
+                buf.append(arg);
+            } catch (Throwable t) {
+                buf.append("[FAILED toString()]");
+            }
+        }
     }
 
     /**
@@ -41,7 +159,26 @@ public class MaskingConverter extends ReplacingCompositeConverter<ILoggingEvent>
      */
     @Override
     public void start() {
+        if (TOKEN_OPTION.equalsIgnoreCase(getFirstOption())) {
+            String keyName = getOptionList().size() > 1 ? getOptionList().get(1) : TokenMasker.DEFAULT_KEY_NAME;
+            byte[] key = lookupKey(keyName);
+            if (key == null) {
+                addWarn(String.format("No masking key in [%s], tokens can only be correlated until the application restarts", keyName));
+                tokens = TokenMasker.withRandomKey();
+            } else {
+                tokens = new TokenMasker(key);
+            }
+        }
         started = true;
     }
 
+    // looks up the key in the context properties, then in the system properties and environment
+    private byte[] lookupKey(String keyName) {
+        String value = getContext() == null ? null : getContext().getProperty(keyName);
+        if (value != null && !value.isEmpty()) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+        return TokenMasker.lookupKey(keyName);
+    }
+
 }
@@ -0,0 +1,58 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * This converter neutralizes log injection in the output of its child pattern: C0 and C1 control characters other than tab, the Unicode line and paragraph separators, and ANSI escape sequences.
+ * By default each of them is replaced with an underscore; the <code>escape</code> option escapes them instead, and <code>replace</code> takes an optional replacement character.
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="sanitize" converterClass="org.owasp.security.logging.mask.SanitizingConverter" /&gt;
+ *
+ * %sanitize(%msg)  %sanitize(%msg){escape}  %sanitize(%msg){replace, ?}
+ * </pre>
+ *
+ * The output is checked in a single pass where the child pattern appended it, and returned as is when it is clean. Use {@link SanitizingThrowableProxyConverter} to sanitize the messages of logged exceptions as well.
+ */
+public class SanitizingConverter extends StreamingCompositeConverter {
+
+    public static final String ESCAPE_OPTION = "escape";
+
+    public static final String REPLACE_OPTION = "replace";
+
+    private LogSanitizer sanitizer = LogSanitizer.replacing(LogSanitizer.DEFAULT_REPLACEMENT);
+
+    @Override
+    protected void transform(ILoggingEvent event, StringBuilder buf, int start) {
+        sanitizer.sanitize(buf, start);
+    }
+
+    @Override
+    public void start() {
+        sanitizer = fromOptions(getFirstOption(), getOptionList() != null && getOptionList().size() > 1 ? getOptionList().get(1) : null);
+        if (sanitizer == null) {
+            addError("Invalid options for sanitize: " + getOptionList());
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * Returns the sanitizer for a mode and replacement, or null if they are invalid.
+     */
+    static LogSanitizer fromOptions(String mode, String replacement) {
+        if (ESCAPE_OPTION.equalsIgnoreCase(mode)) {
+            return LogSanitizer.escaping();
+        }
+        if (mode != null && !REPLACE_OPTION.equalsIgnoreCase(mode)) {
+            return null;
+        }
+        if (replacement == null || replacement.isEmpty()) {
+            return LogSanitizer.replacing(LogSanitizer.DEFAULT_REPLACEMENT);
+        }
+        if (replacement.length() != 1 || LogSanitizer.isUnsafe(replacement.charAt(0))) {
+            return null;
+        }
+        return LogSanitizer.replacing(replacement.charAt(0));
+    }
+}
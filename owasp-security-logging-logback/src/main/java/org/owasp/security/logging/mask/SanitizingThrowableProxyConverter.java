@@ -0,0 +1,79 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.pattern.ThrowableProxyConverter;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+
+/**
+ * Outputs the stack trace of a logged exception like <code>%ex</code>, with the messages of the exception, its causes and its suppressed exceptions sanitized the way {@link SanitizingConverter}
+ * sanitizes messages by default. The line breaks of the stack trace itself are kept.
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="sanitizedEx" converterClass="org.owasp.security.logging.mask.SanitizingThrowableProxyConverter" /&gt;
+ *
+ * %sanitize(%msg)%n%sanitizedEx
+ * </pre>
+ */
+public class SanitizingThrowableProxyConverter extends ThrowableProxyConverter {
+
+    private static final LogSanitizer SANITIZER = LogSanitizer.replacing(LogSanitizer.DEFAULT_REPLACEMENT);
+
+    @Override
+    protected String throwableProxyToString(IThrowableProxy tp) {
+        return super.throwableProxyToString(SanitizedThrowableProxy.of(tp));
+    }
+
+    /**
+     * A view of a throwable proxy with sanitized messages.
+     */
+    static final class SanitizedThrowableProxy implements IThrowableProxy {
+
+        private final IThrowableProxy source;
+
+        private SanitizedThrowableProxy(IThrowableProxy source) {
+            this.source = source;
+        }
+
+        static IThrowableProxy of(IThrowableProxy source) {
+            return source == null || source instanceof SanitizedThrowableProxy ? source : new SanitizedThrowableProxy(source);
+        }
+
+        @Override
+        public String getMessage() {
+            return SANITIZER.sanitize(source.getMessage());
+        }
+
+        @Override
+        public String getClassName() {
+            return source.getClassName();
+        }
+
+        @Override
+        public StackTraceElementProxy[] getStackTraceElementProxyArray() {
+            return source.getStackTraceElementProxyArray();
+        }
+
+        @Override
+        public int getCommonFrames() {
+            return source.getCommonFrames();
+        }
+
+        @Override
+        public IThrowableProxy getCause() {
+            return of(source.getCause());
+        }
+
+        @Override
+        public IThrowableProxy[] getSuppressed() {
+            IThrowableProxy[] suppressed = source.getSuppressed();
+            if (suppressed == null || suppressed.length == 0) {
+                return suppressed;
+            }
+            IThrowableProxy[] sanitized = new IThrowableProxy[suppressed.length];
+            for (int i = 0; i < suppressed.length; i++) {
+                sanitized[i] = of(suppressed[i]);
+            }
+            return sanitized;
+        }
+    }
+}
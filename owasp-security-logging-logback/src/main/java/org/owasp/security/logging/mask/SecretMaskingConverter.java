@@ -0,0 +1,23 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Masks every occurrence of the secrets registered in the {@link SecretDictionary} in the output of its child pattern. To cover exception messages, put the exception in the child pattern and
+ * turn off the exception Logback appends by default:
+ *
+ * <pre>
+ * &lt;conversionRule conversionWord="maskSecrets" converterClass="org.owasp.security.logging.mask.SecretMaskingConverter" /&gt;
+ *
+ * %nopex%maskSecrets(%msg%n%ex)
+ * </pre>
+ *
+ * The output is scanned for all secrets at once where the child pattern appended it, and left as is when it contains none.
+ */
+public class SecretMaskingConverter extends StreamingCompositeConverter {
+
+    @Override
+    protected void transform(ILoggingEvent event, StringBuilder buf, int start) {
+        SecretDictionary.mask(buf, start);
+    }
+}
@@ -0,0 +1,78 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.pattern.CompositeConverter;
+import ch.qos.logback.core.pattern.Converter;
+import ch.qos.logback.core.pattern.FormattingConverter;
+
+/**
+ * A composite converter that transforms the output of its child pattern in place. The children are appended into one buffer, through {@link StreamingConverter#append} where they support it, and
+ * the appended text is then transformed where it lies. Nested streaming composites share the buffer of the outermost one, which returns the only String of the stack.
+ */
+public abstract class StreamingCompositeConverter extends CompositeConverter<ILoggingEvent> implements StreamingConverter {
+
+    // buffers larger than this are not kept between calls
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    // one buffer per converter, so a child called through its String result never shares it
+    private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    /**
+     * Transforms the text appended to a buffer by the child pattern.
+     *
+     * @param event
+     *            the event
+     * @param buf
+     *            the buffer
+     * @param start
+     *            the start of the child pattern's output, which runs to the end of the buffer
+     */
+    protected abstract void transform(ILoggingEvent event, StringBuilder buf, int start);
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        append(event, buffer);
+        String converted = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffers.remove();
+        }
+        return converted;
+    }
+
+    @Override
+    public void append(ILoggingEvent event, StringBuilder out) {
+        int start = out.length();
+        for (Converter<ILoggingEvent> c = getChildConverter(); c != null; c = c.getNext()) {
+            if (isStreaming(c)) {
+                ((StreamingConverter) c).append(event, out);
+            } else {
+                c.write(out, event);
+            }
+        }
+        transform(event, out, start);
+    }
+
+    @Override
+    protected String transform(ILoggingEvent event, String in) {
+        StringBuilder buf = new StringBuilder(in);
+        transform(event, buf, 0);
+        return buf.toString();
+    }
+
+    /**
+     * @return true if a converter can append its output itself, which requires that no padding or truncation applies to it
+     */
+    static boolean isStreaming(Converter<ILoggingEvent> converter) {
+        if (!(converter instanceof StreamingConverter)) {
+            return false;
+        }
+        return !(converter instanceof FormattingConverter) || ((FormattingConverter<ILoggingEvent>) converter).getFormattingInfo() == null;
+    }
+}
@@ -0,0 +1,22 @@
+package org.owasp.security.logging.mask;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * A converter that can append its output straight into the caller's buffer instead of returning a String. {@link StreamingCompositeConverter}s stream their children through this interface, so
+ * stacked converters such as <code>%crlf(%mask)</code> work in a single buffer without intermediate copies of the message.
+ *
+ * Logback only streams the converters it calls itself through their String result, so the outermost converter of a stack still returns one String.
+ */
+public interface StreamingConverter {
+
+    /**
+     * Appends the output of the converter for an event.
+     *
+     * @param event
+     *            the event
+     * @param out
+     *            the buffer to append to
+     */
+    void append(ILoggingEvent event, StringBuilder out);
+}
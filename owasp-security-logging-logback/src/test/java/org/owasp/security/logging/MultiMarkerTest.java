@@ -0,0 +1,66 @@
+package org.owasp.security.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Marker;
+
+public class MultiMarkerTest {
+
+    @Test
+    public void builderTest() {
+        MultiMarker marker = MultiMarker.builder().add(SecurityMarkers.SECURITY_FAILURE).add(SecurityMarkers.CONFIDENTIAL, SecurityMarkers.SECURITY_FAILURE).build();
+
+        List<Marker> references = new ArrayList<>();
+        for (Iterator<Marker> it = marker.iterator(); it.hasNext();) {
+            references.add(it.next());
+        }
+        assertEquals(2, references.size());
+        assertSame(SecurityMarkers.SECURITY_FAILURE, references.get(0));
+        assertSame(SecurityMarkers.CONFIDENTIAL, references.get(1));
+
+        assertEquals(new MultiMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL), marker);
+        assertEquals(new MultiMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL).hashCode(), marker.hashCode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void addTest() {
+        new MultiMarker(SecurityMarkers.SECURITY_AUDIT).add(SecurityMarkers.CONFIDENTIAL);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeTest() {
+        new MultiMarker(SecurityMarkers.SECURITY_AUDIT).remove(SecurityMarkers.SECURITY_AUDIT);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void iteratorRemoveTest() {
+        Iterator<Marker> it = new MultiMarker(SecurityMarkers.SECURITY_AUDIT).iterator();
+        it.next();
+        it.remove();
+    }
+
+    @Test
+    public void copyOnWriteTest() {
+        MultiMarker original = new MultiMarker(SecurityMarkers.SECURITY_AUDIT);
+
+        MultiMarker confidential = original.with(SecurityMarkers.CONFIDENTIAL);
+        assertTrue(confidential.contains(SecurityMarkers.CONFIDENTIAL));
+        assertTrue(confidential.contains(SecurityMarkers.SECURITY_AUDIT));
+        assertFalse(original.contains(SecurityMarkers.CONFIDENTIAL));
+        assertSame(confidential, confidential.with(SecurityMarkers.CONFIDENTIAL));
+
+        MultiMarker audit = confidential.without(SecurityMarkers.CONFIDENTIAL);
+        assertFalse(audit.contains(SecurityMarkers.CONFIDENTIAL));
+        assertTrue(confidential.contains(SecurityMarkers.CONFIDENTIAL));
+        assertEquals(original, audit);
+        assertSame(audit, audit.without(SecurityMarkers.CONFIDENTIAL));
+    }
+}
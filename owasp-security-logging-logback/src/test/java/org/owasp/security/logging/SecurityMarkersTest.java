@@ -1,7 +1,10 @@
 package org.owasp.security.logging;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
@@ -16,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -113,4 +117,53 @@ public class SecurityMarkersTest {
         assertTrue(test.contains(SecurityMarkers.CONFIDENTIAL));
         assertFalse(test.contains(SecurityMarkers.EVENT_FAILURE));
     }
+
+    @Test
+    public void maskTest() {
+        assertEquals(SecurityMarkers.CONFIDENTIAL_MASK, SecurityMarkers.maskOf(SecurityMarkers.CONFIDENTIAL));
+        assertEquals(0L, SecurityMarkers.maskOf((Marker) null));
+        assertEquals(0L, SecurityMarkers.maskOf(MarkerFactory.getDetachedMarker("FOREIGN")));
+
+        Marker multi = SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.RESTRICTED);
+        assertEquals(SecurityMarkers.SECURITY_FAILURE_MASK | SecurityMarkers.RESTRICTED_MASK, SecurityMarkers.maskOf(multi));
+        assertTrue((SecurityMarkers.maskOf(multi) & SecurityMarkers.CLASSIFIED_MASK) != 0);
+        assertTrue((SecurityMarkers.maskOf(multi) & SecurityMarkers.SECURITY_EVENT_MASK) != 0);
+    }
+
+    @Test
+    public void foreignMarkerTest() {
+        Marker foreign = MarkerFactory.getDetachedMarker("FOREIGN");
+        Marker nested = MarkerFactory.getDetachedMarker("NESTED");
+        nested.add(SecurityMarkers.SECRET);
+
+        Marker multi = SecurityMarkers.getMarker(SecurityMarkers.SECURITY_AUDIT, foreign, nested);
+        assertTrue(multi.contains(foreign));
+        assertTrue(multi.contains("FOREIGN"));
+        assertTrue(multi.contains(SecurityMarkers.SECRET));
+        assertTrue(multi.contains(SecurityMarkers.SECRET_MARKER_NAME));
+        assertFalse(multi.contains(SecurityMarkers.CONFIDENTIAL));
+        assertFalse(multi.contains("OTHER"));
+        assertEquals(SecurityMarkers.SECURITY_AUDIT_MASK | SecurityMarkers.SECRET_MASK, SecurityMarkers.maskOf(multi));
+    }
+
+    @Test
+    public void internTest() {
+        Marker first = SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL);
+        Marker second = SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL);
+        assertSame(first, second);
+
+        // order matters
+        Marker reversed = SecurityMarkers.getMarker(SecurityMarkers.CONFIDENTIAL, SecurityMarkers.SECURITY_FAILURE);
+        assertNotSame(first, reversed);
+        assertTrue(reversed.contains(SecurityMarkers.SECURITY_FAILURE));
+        assertTrue(reversed.contains(SecurityMarkers.CONFIDENTIAL));
+
+        // the table is bounded, but every combination is still returned correctly
+        for (int i = 0; i < 5000; i++) {
+            Marker foreign = MarkerFactory.getDetachedMarker("FOREIGN" + i);
+            Marker combined = SecurityMarkers.getMarker(SecurityMarkers.SECURITY_AUDIT, foreign);
+            assertTrue(combined.contains(foreign));
+            assertTrue(combined.contains(SecurityMarkers.SECURITY_AUDIT));
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package org.owasp.security.logging.appender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.util.Duration;
+
+public class CollapsingAppenderTest {
+
+    private LoggerContext loggerContext;
+
+    private ListAppender<ILoggingEvent> listAppender;
+
+    private CollapsingAppender appender;
+
+    @Before
+    public void setUp() {
+        loggerContext = new LoggerContext();
+
+        listAppender = new ListAppender<>();
+        listAppender.setContext(loggerContext);
+        listAppender.start();
+
+        appender = new CollapsingAppender();
+        appender.setContext(loggerContext);
+        appender.setWindow(Duration.buildByHours(1));
+        appender.addMarker(SecurityMarkers.SECURITY_FAILURE_MARKER_NAME);
+        appender.addMdcKey(MDCFilter.IPADDRESS);
+        appender.addAppender(listAppender);
+        appender.start();
+    }
+
+    @Test
+    public void testCollapse() {
+        assertTrue(appender.isStarted());
+
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(event(SecurityMarkers.SECURITY_FAILURE, "Login failed for {}", "10.0.0.1", 1000 + i));
+        }
+
+        // a different MDC value or template is a different event
+        appender.doAppend(event(SecurityMarkers.SECURITY_FAILURE, "Login failed for {}", "10.0.0.2", 2000));
+        appender.doAppend(event(SecurityMarkers.SECURITY_FAILURE, "Account locked for {}", "10.0.0.1", 2000));
+
+        // events without the marker are not collapsed
+        appender.doAppend(event(SecurityMarkers.SECURITY_SUCCESS, "Login succeeded for {}", "10.0.0.1", 3000));
+        appender.doAppend(event(SecurityMarkers.SECURITY_SUCCESS, "Login succeeded for {}", "10.0.0.1", 3000));
+
+        assertEquals(5, listAppender.list.size());
+
+        // open windows are reported when the appender stops
+        appender.stop();
+        assertEquals(6, listAppender.list.size());
+
+        ILoggingEvent repeated = listAppender.list.get(5);
+        assertEquals(SecurityMarkers.SECURITY_FAILURE, repeated.getMarker());
+        assertEquals(Level.WARN, repeated.getLevel());
+        assertEquals("10.0.0.1", repeated.getMDCPropertyMap().get(MDCFilter.IPADDRESS));
+        assertTrue(repeated.getFormattedMessage(), repeated.getFormattedMessage().startsWith("Login failed for {} [repeated 4 times between "));
+    }
+
+    private ILoggingEvent event(Marker marker, String message, String ipAddress, long timeStamp) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerName(CollapsingAppenderTest.class.getName());
+        event.setLevel(Level.WARN);
+        event.setMarker(marker);
+        event.setMessage(message);
+        event.setArgumentArray(new Object[] { "user" + timeStamp });
+        event.setTimeStamp(timeStamp);
+        event.setMDCPropertyMap(Collections.singletonMap(MDCFilter.IPADDRESS, ipAddress));
+        return event;
+    }
+}
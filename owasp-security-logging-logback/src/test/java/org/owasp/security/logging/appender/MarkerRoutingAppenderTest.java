@@ -0,0 +1,91 @@
+package org.owasp.security.logging.appender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.MarkerFactory;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class MarkerRoutingAppenderTest {
+
+    private static final String CONFIG = "<configuration>"
+            + "<appender name='SECURITY' class='ch.qos.logback.core.read.ListAppender' />"
+            + "<appender name='CLASSIFIED' class='ch.qos.logback.core.read.ListAppender' />"
+            + "<appender name='APP' class='ch.qos.logback.core.read.ListAppender' />"
+            + "<appender name='ROUTER' class='org.owasp.security.logging.appender.MarkerRoutingAppender'>"
+            + "<appender-ref ref='SECURITY' /><appender-ref ref='CLASSIFIED' /><appender-ref ref='APP' />"
+            + "<route><marker>SECURITY SUCCESS</marker><marker>SECURITY FAILURE</marker><marker>SECURITY AUDIT</marker><appender>SECURITY</appender><async>true</async></route>"
+            + "<route><marker>CONFIDENTIAL</marker><marker>PAYMENT</marker><appender>CLASSIFIED</appender></route>"
+            + "<route><marker>TOPSECRET</marker><appender>CLASSIFIED</appender></route>"
+            + "<route><appender>APP</appender></route>"
+            + "</appender>"
+            + "<root level='DEBUG'><appender-ref ref='ROUTER' /></root>"
+            + "</configuration>";
+
+    private LoggerContext loggerContext;
+
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        loggerContext = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        configurator.doConfigure(new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+        logger = loggerContext.getLogger(MarkerRoutingAppenderTest.class);
+    }
+
+    @Test
+    public void testRouting() {
+        MarkerRoutingAppender router = (MarkerRoutingAppender) loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).getAppender("ROUTER");
+        assertTrue(router.isStarted());
+        ListAppender<ILoggingEvent> security = list(router, "SECURITY");
+        ListAppender<ILoggingEvent> classified = list(router, "CLASSIFIED");
+        ListAppender<ILoggingEvent> app = list(router, "APP");
+
+        logger.info("plain");
+        logger.info(SecurityMarkers.EVENT_SUCCESS, "event");
+        logger.info(SecurityMarkers.SECURITY_AUDIT, "audit");
+        logger.info(SecurityMarkers.CONFIDENTIAL, "confidential");
+        logger.info(MarkerFactory.getDetachedMarker("PAYMENT"), "payment");
+
+        // an event matching several routes to the same appender is sent once
+        logger.info(SecurityMarkers.getMarker(SecurityMarkers.CONFIDENTIAL, SecurityMarkers.TOP_SECRET), "classified");
+        logger.info(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.SECRET), "failure");
+        logger.info(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL), "both");
+
+        // stopping drains the async queue
+        loggerContext.stop();
+
+        assertEquals(2, app.list.size());
+        assertEquals("plain", app.list.get(0).getMessage());
+        assertEquals("event", app.list.get(1).getMessage());
+
+        assertEquals(4, classified.list.size());
+        assertEquals("confidential", classified.list.get(0).getMessage());
+        assertEquals("payment", classified.list.get(1).getMessage());
+        assertEquals("classified", classified.list.get(2).getMessage());
+        assertEquals("both", classified.list.get(3).getMessage());
+
+        assertEquals(3, security.list.size());
+        assertEquals("audit", security.list.get(0).getMessage());
+        assertEquals("failure", security.list.get(1).getMessage());
+        assertEquals("both", security.list.get(2).getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ListAppender<ILoggingEvent> list(MarkerRoutingAppender router, String name) {
+        return (ListAppender<ILoggingEvent>) router.getAppender(name);
+    }
+}
@@ -0,0 +1,112 @@
+package org.owasp.security.logging.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class CompositeSecurityFilterTest {
+
+    private static final String CONFIG = "<configuration>"
+            + "<appender name='LIST' class='ch.qos.logback.core.read.ListAppender'>"
+            + "<filter class='org.owasp.security.logging.filter.CompositeSecurityFilter'>"
+            + "<rule><marker>CONFIDENTIAL</marker><marker>TOPSECRET</marker><reply>DENY</reply></rule>"
+            + "<rule><marker>SECURITY FAILURE</marker><marker>PAYMENT</marker><levelMin>WARN</levelMin><reply>ACCEPT</reply></rule>"
+            + "<rule><logger>com.example.audit</logger><reply>ACCEPT</reply></rule>"
+            + "<defaultReply>DENY</defaultReply>"
+            + "</filter>"
+            + "</appender>"
+            + "<root level='DEBUG'><appender-ref ref='LIST' /></root>"
+            + "</configuration>";
+
+    private final Marker payment = MarkerFactory.getDetachedMarker("PAYMENT");
+
+    @Test
+    public void testRaw() {
+        LoggerContext loggerContext = new LoggerContext();
+        CompositeSecurityFilter filter = new CompositeSecurityFilter();
+        filter.setContext(loggerContext);
+
+        FilterRule classified = new FilterRule();
+        classified.addMarker(SecurityMarkers.CONFIDENTIAL_MARKER_NAME);
+        classified.addMarker(SecurityMarkers.TOP_SECRET_MARKER_NAME);
+        classified.setReply("DENY");
+        filter.addRule(classified);
+
+        FilterRule failures = new FilterRule();
+        failures.addMarker(SecurityMarkers.SECURITY_FAILURE_MARKER_NAME);
+        failures.addMarker("PAYMENT");
+        failures.setLevelMin("WARN");
+        failures.setReply("ACCEPT");
+        filter.addRule(failures);
+
+        FilterRule audit = new FilterRule();
+        audit.setLogger("com.example.audit");
+        audit.setLevelMax("INFO");
+        audit.setReply("ACCEPT");
+        filter.addRule(audit);
+
+        filter.start();
+        assertTrue(filter.isStarted());
+
+        // no rule matches
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(null, Level.INFO, "com.example.App")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, Level.INFO, "com.example.App")));
+
+        // rules are evaluated in order
+        assertEquals(FilterReply.DENY, filter.decide(event(SecurityMarkers.CONFIDENTIAL, Level.ERROR, "com.example.audit")));
+        assertEquals(FilterReply.DENY,
+                filter.decide(event(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.TOP_SECRET), Level.ERROR, "com.example.App")));
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, Level.WARN, "com.example.App")));
+
+        // custom markers, also when referenced
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(payment, Level.ERROR, "com.example.App")));
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(SecurityMarkers.getMarker(SecurityMarkers.EVENT_FAILURE, payment), Level.ERROR, "com.example.App")));
+
+        // logger hierarchy and level range
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(null, Level.INFO, "com.example.audit")));
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(null, Level.DEBUG, "com.example.audit.Login")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(null, Level.WARN, "com.example.audit.Login")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(null, Level.INFO, "com.example.auditing")));
+    }
+
+    @Test
+    public void testConfiguration() throws Exception {
+        LoggerContext loggerContext = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        configurator.doConfigure(new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+
+        Appender<ILoggingEvent> appender = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).getAppender("LIST");
+        Filter<ILoggingEvent> filter = appender.getCopyOfAttachedFiltersList().get(0);
+        assertTrue(filter.isStarted());
+
+        assertEquals(FilterReply.DENY, filter.decide(event(SecurityMarkers.CONFIDENTIAL, Level.ERROR, "com.example.App")));
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(payment, Level.WARN, "com.example.App")));
+        assertEquals(FilterReply.DENY, filter.decide(event(payment, Level.INFO, "com.example.App")));
+        assertEquals(FilterReply.ACCEPT, filter.decide(event(null, Level.INFO, "com.example.audit.Login")));
+    }
+
+    private static ILoggingEvent event(Marker marker, Level level, String loggerName) {
+        LoggingEvent event = new LoggingEvent();
+        event.setMarker(marker);
+        event.setLevel(level);
+        event.setLoggerName(loggerName);
+        return event;
+    }
+}
@@ -15,6 +15,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.owasp.security.logging.SecurityMarkers;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -195,4 +196,26 @@ public class ExcludeClassifiedMarkerFilterTest {
         normalEvent.setMarker(SecurityMarkers.EVENT_SUCCESS);
         assertEquals(FilterReply.NEUTRAL, mkt.decide(nulEvent));
     }
+
+    @Test
+    public void testRawConfiguredMarkers() {
+        ExcludeClassifiedMarkerFilter mkt = new ExcludeClassifiedMarkerFilter();
+        mkt.setContext(loggerContext);
+        mkt.addMarker("TOPSECRET");
+        mkt.addMarker("INTERNAL");
+        mkt.start();
+
+        LoggingEvent topSecretEvent = new LoggingEvent();
+        topSecretEvent.setMarker(SecurityMarkers.TOP_SECRET);
+        assertEquals(FilterReply.DENY, mkt.decide(topSecretEvent));
+
+        LoggingEvent confidentialEvent = new LoggingEvent();
+        confidentialEvent.setMarker(SecurityMarkers.CONFIDENTIAL);
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(confidentialEvent));
+
+        LoggingEvent internalEvent = new LoggingEvent();
+        internalEvent.setMarker(MarkerFactory.getDetachedMarker("INTERNAL"));
+        assertEquals(FilterReply.DENY, mkt.decide(internalEvent));
+    }
+
 }
@@ -0,0 +1,57 @@
+package org.owasp.security.logging.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class ExcludeClassifiedMarkerTurboFilterTest {
+
+    LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+    Logger LOGGER;
+
+    @Before
+    public void setUp() {
+        LOGGER = loggerContext.getLogger(ExcludeClassifiedMarkerTurboFilterTest.class);
+    }
+
+    @Test
+    public void testRaw() {
+        ExcludeClassifiedMarkerTurboFilter mkt = new ExcludeClassifiedMarkerTurboFilter();
+        mkt.setContext(loggerContext);
+        mkt.start();
+
+        assertTrue(mkt.isStarted());
+
+        // no markers
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(null, LOGGER, Level.INFO, "no marker", null, null));
+
+        // classified markers
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.RESTRICTED, LOGGER, Level.INFO, "restricted", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.CONFIDENTIAL, LOGGER, Level.INFO, "confidential", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.SECRET, LOGGER, Level.INFO, "secret", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.TOP_SECRET, LOGGER, Level.INFO, "top secret", null, null));
+
+        // unclassified markers
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_AUDIT, LOGGER, Level.INFO, "audit", null, null));
+
+        // multiple markers
+        assertEquals(FilterReply.DENY,
+                mkt.decide(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_AUDIT, SecurityMarkers.CONFIDENTIAL), LOGGER, Level.INFO, "multi", null, null));
+        assertEquals(FilterReply.NEUTRAL,
+                mkt.decide(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_AUDIT, SecurityMarkers.EVENT_SUCCESS), LOGGER, Level.INFO, "multi", null, null));
+
+        // cached decisions are repeated
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.CONFIDENTIAL, LOGGER, Level.INFO, "confidential", null, null));
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_AUDIT, LOGGER, Level.INFO, "audit", null, null));
+    }
+}
@@ -0,0 +1,96 @@
+package org.owasp.security.logging.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class RateLimitingFilterTest {
+
+    @Test
+    public void testRaw() {
+        LoggerContext loggerContext = new LoggerContext();
+        ListAppender<ILoggingEvent> summaries = new ListAppender<>();
+        summaries.setContext(loggerContext);
+        summaries.start();
+        loggerContext.getLogger(RateLimitingFilter.class).addAppender(summaries);
+
+        RateLimitingFilter filter = new RateLimitingFilter();
+        filter.setContext(loggerContext);
+        filter.setRate(0.001);
+        filter.setBurst(2);
+        filter.start();
+        assertTrue(filter.isStarted());
+
+        // only SECURITY FAILURE events are limited by default
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_SUCCESS, "10.0.0.1")));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(event(null, "10.0.0.1")));
+        }
+
+        // each IP address has its own bucket
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, "10.0.0.1")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_FAILURE, SecurityMarkers.CONFIDENTIAL), "10.0.0.1")));
+        assertEquals(FilterReply.DENY, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, "10.0.0.1")));
+        assertEquals(FilterReply.DENY, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, "10.0.0.1")));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, "10.0.0.2")));
+
+        // suppressed events are reported
+        filter.reportSuppressed();
+        assertEquals(1, summaries.list.size());
+        ILoggingEvent summary = summaries.list.get(0);
+        assertEquals(SecurityMarkers.SECURITY_AUDIT, summary.getMarker());
+        assertEquals("Rate limit suppressed 2 SECURITY FAILURE events for ipAddress=10.0.0.1", summary.getFormattedMessage());
+
+        filter.stop();
+        assertEquals(1, summaries.list.size());
+    }
+
+    @Test
+    public void testSummariesNotLimited() {
+        LoggerContext loggerContext = new LoggerContext();
+        RateLimitingFilter filter = new RateLimitingFilter();
+        filter.setContext(loggerContext);
+        filter.addMarker(SecurityMarkers.SECURITY_AUDIT_MARKER_NAME);
+        filter.setRate(0.001);
+        filter.setBurst(1);
+        filter.start();
+
+        // the summaries go to an appender limited by the same filter, from a thread without the MDC field
+        ListAppender<ILoggingEvent> summaries = new ListAppender<>();
+        summaries.setContext(loggerContext);
+        summaries.addFilter(filter);
+        summaries.start();
+        loggerContext.getLogger(RateLimitingFilter.class).addAppender(summaries);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_AUDIT, null)));
+        assertEquals(FilterReply.DENY, filter.decide(event(SecurityMarkers.SECURITY_AUDIT, null)));
+
+        // the summary is logged, and not suppressed and counted into the next one
+        filter.reportSuppressed();
+        assertEquals(1, summaries.list.size());
+        assertEquals("Rate limit suppressed 1 SECURITY AUDIT events for ipAddress=-", summaries.list.get(0).getFormattedMessage());
+        filter.stop();
+        assertEquals(1, summaries.list.size());
+    }
+
+    private static ILoggingEvent event(Marker marker, String ipAddress) {
+        LoggingEvent event = new LoggingEvent();
+        event.setMarker(marker);
+        event.setLevel(Level.WARN);
+        event.setMDCPropertyMap(Collections.singletonMap(MDCFilter.IPADDRESS, ipAddress));
+        return event;
+    }
+}
@@ -0,0 +1,98 @@
+package org.owasp.security.logging.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.mdc.MDCFilter;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class SamplingFilterTest {
+
+    private static final int EVENTS = 10000;
+
+    LoggerContext loggerContext = new LoggerContext();
+
+    @Test
+    public void testDefaults() {
+        SamplingFilter filter = new SamplingFilter();
+        filter.setContext(loggerContext);
+        filter.start();
+        assertTrue(filter.isStarted());
+
+        int kept = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            // failures and unmarked events are always kept
+            assertEquals(FilterReply.NEUTRAL, filter.decide(event(SecurityMarkers.SECURITY_FAILURE, "session" + i)));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(event(null, "session" + i)));
+
+            if (filter.decide(event(SecurityMarkers.EVENT_SUCCESS, "session" + i)) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+
+        // about 10% of the sessions are kept
+        assertTrue("kept " + kept, kept > EVENTS * 0.08 && kept < EVENTS * 0.12);
+        assertEquals(EVENTS - kept, filter.getSampledOut());
+        assertEquals(EVENTS - kept, filter.getSampledOut(SecurityMarkers.EVENT_SUCCESS_MARKER_NAME));
+    }
+
+    @Test
+    public void testSessionsAreKeptOrDropped() {
+        SamplingFilter filter = new SamplingFilter();
+        filter.setContext(loggerContext);
+        SampleRate events = new SampleRate();
+        events.setMarker(SecurityMarkers.EVENT_SUCCESS_MARKER_NAME);
+        events.setRate(0.5);
+        filter.addSample(events);
+        SampleRate security = new SampleRate();
+        security.setMarker(SecurityMarkers.SECURITY_SUCCESS_MARKER_NAME);
+        security.setRate(0.5);
+        filter.addSample(security);
+        filter.start();
+
+        for (int i = 0; i < 100; i++) {
+            String session = "session" + i;
+            FilterReply reply = filter.decide(event(SecurityMarkers.EVENT_SUCCESS, session));
+            for (int j = 0; j < 10; j++) {
+                assertEquals(reply, filter.decide(event(SecurityMarkers.EVENT_SUCCESS, session)));
+                assertEquals(reply, filter.decide(event(SecurityMarkers.SECURITY_SUCCESS, session)));
+            }
+        }
+    }
+
+    @Test
+    public void testRateBounds() {
+        SamplingFilter none = new SamplingFilter();
+        none.setContext(loggerContext);
+        none.setDefaultRate(0);
+        none.start();
+
+        SamplingFilter all = new SamplingFilter();
+        all.setContext(loggerContext);
+        all.setDefaultRate(1);
+        all.start();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(FilterReply.DENY, none.decide(event(SecurityMarkers.SECURITY_SUCCESS, null)));
+            assertEquals(FilterReply.NEUTRAL, all.decide(event(SecurityMarkers.SECURITY_SUCCESS, null)));
+        }
+    }
+
+    private static ILoggingEvent event(Marker marker, String session) {
+        LoggingEvent event = new LoggingEvent();
+        event.setMarker(marker);
+        Map<String, String> mdc = session == null ? Collections.<String, String> emptyMap() : Collections.singletonMap(MDCFilter.SESSION, session);
+        event.setMDCPropertyMap(mdc);
+        return event;
+    }
+}
@@ -15,6 +15,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.owasp.security.logging.SecurityMarkers;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -203,4 +204,36 @@ public class SecurityMarkerFilterTest {
         assertEquals(FilterReply.ACCEPT, mkt.decide(secretEvent));
     }
 
+    @Test
+    public void testRawConfiguredMarkers() {
+        Marker payment = MarkerFactory.getDetachedMarker("PAYMENT");
+
+        // each instance has its own marker set
+        SecurityMarkerFilter mkt = new SecurityMarkerFilter();
+        mkt.setContext(loggerContext);
+        mkt.addMarker("SECURITY AUDIT");
+        mkt.addMarker("PAYMENT");
+        mkt.start();
+
+        SecurityMarkerFilter defaults = new SecurityMarkerFilter();
+        defaults.setContext(loggerContext);
+        defaults.start();
+
+        LoggingEvent auditEvent = new LoggingEvent();
+        auditEvent.setMarker(SecurityMarkers.SECURITY_AUDIT);
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(auditEvent));
+        assertEquals(FilterReply.NEUTRAL, defaults.decide(auditEvent));
+
+        LoggingEvent successEvent = new LoggingEvent();
+        successEvent.setMarker(SecurityMarkers.SECURITY_SUCCESS);
+        assertEquals(FilterReply.DENY, mkt.decide(successEvent));
+        assertEquals(FilterReply.NEUTRAL, defaults.decide(successEvent));
+
+        // custom markers are matched by name, also when referenced
+        LoggingEvent paymentEvent = new LoggingEvent();
+        paymentEvent.setMarker(SecurityMarkers.getMarker(SecurityMarkers.EVENT_SUCCESS, payment));
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(paymentEvent));
+        assertEquals(FilterReply.DENY, defaults.decide(paymentEvent));
+    }
+
 }
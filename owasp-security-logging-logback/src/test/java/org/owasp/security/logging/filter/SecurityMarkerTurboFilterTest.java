@@ -0,0 +1,79 @@
+package org.owasp.security.logging.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class SecurityMarkerTurboFilterTest {
+
+    LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+    Logger LOGGER;
+
+    @Before
+    public void setUp() {
+        LOGGER = loggerContext.getLogger(SecurityMarkerTurboFilterTest.class);
+    }
+
+    @Test
+    public void testRaw() {
+        SecurityMarkerTurboFilter mkt = new SecurityMarkerTurboFilter();
+        mkt.setContext(loggerContext);
+        mkt.start();
+
+        assertTrue(mkt.isStarted());
+
+        // no markers
+        assertEquals(FilterReply.DENY, mkt.decide(null, LOGGER, Level.INFO, "no marker", null, null));
+
+        // security markers
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_SUCCESS, LOGGER, Level.INFO, "success", null, null));
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_FAILURE, LOGGER, Level.INFO, "failure", null, null));
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_AUDIT, LOGGER, Level.INFO, "audit", null, null));
+
+        // non-security markers
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.EVENT_SUCCESS, LOGGER, Level.INFO, "event", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.CONFIDENTIAL, LOGGER, Level.INFO, "confidential", null, null));
+
+        // multiple markers
+        assertEquals(FilterReply.NEUTRAL,
+                mkt.decide(SecurityMarkers.getMarker(SecurityMarkers.SECURITY_AUDIT, SecurityMarkers.CONFIDENTIAL), LOGGER, Level.INFO, "multi", null, null));
+        assertEquals(FilterReply.DENY,
+                mkt.decide(SecurityMarkers.getMarker(SecurityMarkers.EVENT_SUCCESS, SecurityMarkers.CONFIDENTIAL), LOGGER, Level.INFO, "multi", null, null));
+
+        // cached decisions are repeated
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(SecurityMarkers.SECURITY_SUCCESS, LOGGER, Level.INFO, "success", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.EVENT_SUCCESS, LOGGER, Level.INFO, "event", null, null));
+    }
+
+    @Test
+    public void testRawAcceptAll() {
+        SecurityMarkerTurboFilter mkt = new SecurityMarkerTurboFilter();
+        mkt.setContext(loggerContext);
+        mkt.setAcceptAll("true");
+        mkt.start();
+
+        assertEquals(FilterReply.DENY, mkt.decide(null, LOGGER, Level.INFO, "no marker", null, null));
+        assertEquals(FilterReply.ACCEPT, mkt.decide(SecurityMarkers.SECURITY_SUCCESS, LOGGER, Level.INFO, "success", null, null));
+        assertEquals(FilterReply.ACCEPT, mkt.decide(SecurityMarkers.SECURITY_FAILURE, LOGGER, Level.INFO, "failure", null, null));
+        assertEquals(FilterReply.ACCEPT, mkt.decide(SecurityMarkers.SECURITY_AUDIT, LOGGER, Level.INFO, "audit", null, null));
+        assertEquals(FilterReply.DENY, mkt.decide(SecurityMarkers.EVENT_FAILURE, LOGGER, Level.INFO, "event", null, null));
+    }
+
+    @Test
+    public void testNotStarted() {
+        SecurityMarkerTurboFilter mkt = new SecurityMarkerTurboFilter();
+        mkt.setContext(loggerContext);
+
+        assertEquals(FilterReply.NEUTRAL, mkt.decide(null, LOGGER, Level.INFO, "no marker", null, null));
+    }
+}
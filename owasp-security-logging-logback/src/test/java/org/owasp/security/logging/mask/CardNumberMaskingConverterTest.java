@@ -0,0 +1,71 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.owasp.security.logging.mask.ConverterFixtures.assertNotMasked;
+import static org.owasp.security.logging.mask.ConverterFixtures.convert;
+import static org.owasp.security.logging.mask.ConverterFixtures.event;
+
+import org.junit.Test;
+
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class CardNumberMaskingConverterTest {
+
+    private final CardNumberMaskingConverter converter = new CardNumberMaskingConverter();
+
+    @Test
+    public void testCardNumbers() {
+        assertEquals("card ************1111 charged", convert(converter, "card {} charged", "4111111111111111"));
+        assertEquals("card **** **** **** 1111.", convert(converter, "card {}.", "4111 1111 1111 1111"));
+        assertEquals("amex ****-******-*0005", convert(converter, "amex {}", "3782-822463-10005"));
+        assertEquals("diners **** ****** 5904", convert(converter, "diners {}", "3056 930902 5904"));
+        assertEquals("maestro ****-****-****-*453-3", convert(converter, "maestro {}", "6759-6498-2643-8453-3"));
+        assertEquals("first ************4444, second ************1881", convert(converter, "first {}, second {}", "5555555555554444", "4012888888881881"));
+        assertEquals("************4444", convert(converter, "5555555555554444"));
+    }
+
+    @Test
+    public void testNotCardNumbers() {
+        // fails the Luhn checksum
+        assertNotMasked(converter, "order 4111111111111112 shipped");
+        // too short or too long
+        assertNotMasked(converter, "order 411111111111 and 41111111111111111111");
+        // part of a longer word or number
+        assertNotMasked(converter, "ref A4111111111111111 and 4111111111111111B");
+        // timestamps
+        assertNotMasked(converter, "at 2017-01-15 10:30:00.123");
+        // lists of short numbers, even where some of them pass the checksum together
+        assertNotMasked(converter, "elapsed 276 652 12 245 194 170");
+        assertNotMasked(converter, "ids 12-345-678-9012-3456 and 1 2 3 4 5 6 7 8 9 0 1 2 3 4 2");
+        // other groupings and mixed separators
+        assertNotMasked(converter, "ref 41111 11111 11111 1 and 411 111 111 111 111 1");
+        assertNotMasked(converter, "4111 1111-1111 1111 at 10:30");
+        assertNotMasked(converter, "");
+    }
+
+    @Test
+    public void testNextToOtherNumbers() {
+        assertEquals("Charging ************1111 10 USD", convert(converter, "Charging 4111111111111111 10 USD"));
+        assertEquals("order 12345 **** **** **** 1111", convert(converter, "order 12345 4111 1111 1111 1111"));
+        assertEquals("****-****-****-1111 2024-01-01", convert(converter, "4111-1111-1111-1111 2024-01-01"));
+        assertEquals("order 1234-****-****-****-1111", convert(converter, "order 1234-4111-1111-1111-1111"));
+        assertEquals("on 2024-01-01 ************4444", convert(converter, "on 2024-01-01 5555555555554444"));
+    }
+
+    @Test
+    public void testLuhn() {
+        assertTrue(CardNumberMasker.luhn("79927398713", 0, 11));
+        assertTrue(CardNumberMasker.luhn("7992 7398 713", 0, 13));
+        assertFalse(CardNumberMasker.luhn("79927398710", 0, 11));
+    }
+
+    @Test
+    public void testAppend() {
+        StringBuilder out = new StringBuilder("x ");
+        LoggingEvent event = event("pan={}", "4111-1111-1111-1111");
+        converter.append(event, out);
+        assertEquals("x pan=****-****-****-1111", out.toString());
+    }
+}
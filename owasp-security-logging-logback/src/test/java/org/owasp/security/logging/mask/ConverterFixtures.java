@@ -0,0 +1,72 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Context;
+import ch.qos.logback.core.pattern.Converter;
+
+/**
+ * Events and pattern layouts shared by the converter tests.
+ */
+final class ConverterFixtures {
+
+    // converter classes by conversion word
+    private static final Map<String, String> CONVERTERS = new HashMap<>();
+
+    static {
+        CONVERTERS.put("crlf", CRLFConverter.class.getName());
+        CONVERTERS.put("sanitize", SanitizingConverter.class.getName());
+        CONVERTERS.put("sanitizedEx", SanitizingThrowableProxyConverter.class.getName());
+        CONVERTERS.put("mask", MaskingConverter.class.getName());
+        CONVERTERS.put("maskedMsg", DefinedRegexMaskingConverter.class.getName());
+        CONVERTERS.put("maskSecrets", SecretMaskingConverter.class.getName());
+        CONVERTERS.put("count", StreamingCompositeConverterTest.CountingConverter.class.getName());
+    }
+
+    private ConverterFixtures() {
+    }
+
+    /**
+     * Returns a started layout for a pattern that uses the given conversion words.
+     */
+    static PatternLayout layout(Context context, String pattern, String... conversionWords) {
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(context);
+        for (String word : conversionWords) {
+            String converter = CONVERTERS.get(word);
+            if (converter == null) {
+                throw new IllegalArgumentException("Unknown conversion word " + word);
+            }
+            layout.getInstanceConverterMap().put(word, converter);
+        }
+        layout.setPattern(pattern);
+        layout.start();
+        return layout;
+    }
+
+    static LoggingEvent event(String message, Object... args) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(Level.INFO);
+        event.setMessage(message);
+        event.setArgumentArray(args.length == 0 ? null : args);
+        return event;
+    }
+
+    static String convert(Converter<ILoggingEvent> converter, String message, Object... args) {
+        return converter.convert(event(message, args));
+    }
+
+    /**
+     * Asserts that a converter returns a message as is.
+     */
+    static void assertNotMasked(Converter<ILoggingEvent> converter, String message) {
+        assertSame(message, converter.convert(event(message)));
+    }
+}
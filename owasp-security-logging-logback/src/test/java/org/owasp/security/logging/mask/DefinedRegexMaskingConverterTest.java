@@ -1,6 +1,7 @@
 package org.owasp.security.logging.mask;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -115,6 +116,56 @@ public class DefinedRegexMaskingConverterTest {
         assertEquals("\"email\":\"foo*****\",signature=*****", masked);
     }
 
+    @Test
+    public void testNoMatch() {
+        // messages without values to mask are returned as is
+        String message = "username is missing, see orderNumber 1234";
+        assertSame(message, mc.convert(getEvent(message)));
+    }
+
+    @Test
+    public void testSinglePass() {
+        String masked = mc.convert(getEvent("username=abc123 orderNumber=77887765567abc123 email=foo@bar.com password=abc123"));
+        assertEquals("username=ab***** orderNumber=*****c123 email=foo***** password=*****", masked);
+    }
+
+    @Test
+    public void testFewerOptions() {
+        DefinedRegexMaskingConverter converter = new DefinedRegexMaskingConverter();
+        List<String> optionsList = new ArrayList<>();
+        optionsList.add("password");
+        converter.setOptionList(optionsList);
+        converter.start();
+
+        assertEquals("password=*****", converter.convert(getEvent("password=abc123")));
+        assertEquals("email=foo@bar.com", converter.convert(getEvent("email=foo@bar.com")));
+    }
+
+    @Test
+    public void testKeywordPrescreen() {
+        // only the rules whose keys occur in the message run
+        assertEquals("email=foo*****", mc.convert(getEvent("email=foo@bar.com")));
+        assertEquals("giftCardNum=*****1234 customerEmail=foo*****", mc.convert(getEvent("giftCardNum=99991234 customerEmail=foo@bar.com")));
+        String message = "nothing to mask here";
+        assertSame(message, mc.convert(getEvent(message)));
+    }
+
+    @Test
+    public void testPatternKeys() {
+        // keys that are not plain words are not prescreened
+        DefinedRegexMaskingConverter converter = new DefinedRegexMaskingConverter();
+        List<String> optionsList = new ArrayList<>();
+        optionsList.add("pass(word|phrase)");
+        optionsList.add("username");
+        converter.setOptionList(optionsList);
+        converter.start();
+
+        assertEquals("passphrase=*****", converter.convert(getEvent("passphrase=abc123")));
+        assertEquals("username=ab***** password=*****", converter.convert(getEvent("username=abc123 password=abc123")));
+        assertEquals(0, DefinedMaskingRules.keywords("pass(word|phrase)").length);
+        assertEquals(2, DefinedMaskingRules.keywords("password | signature").length);
+    }
+
     private LoggingEvent getEvent(String message) {
         LoggingEvent event = new LoggingEvent();
         event.setMessage(message);
@@ -0,0 +1,90 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.owasp.security.logging.mask.ConverterFixtures.assertNotMasked;
+import static org.owasp.security.logging.mask.ConverterFixtures.convert;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.qos.logback.classic.LoggerContext;
+
+public class JsonMaskingConverterTest {
+
+    private final JsonMaskingConverter converter = new JsonMaskingConverter();
+
+    @Before
+    public void setUp() {
+        converter.setContext(new LoggerContext());
+        converter.setOptionList(Arrays.asList("password", "apiKey|ssn", "card"));
+        converter.start();
+    }
+
+    @Test
+    public void testValues() {
+        assertEquals("body={\"user\":\"jdoe\",\"password\":\"*****\"}", convert(converter, "body={}", "{\"user\":\"jdoe\",\"password\":\"secret\"}"));
+        assertEquals("{ \"ssn\" : \"*****\", \"pin\": 1234, \"apiKey\": \"*****\", \"PASSWORD\": \"*****\" }",
+                convert(converter, "{ \"ssn\" : 123456789, \"pin\": 1234, \"apiKey\": true, \"PASSWORD\": null }"));
+        // escaped quotes in values and escapes in keys
+        assertEquals("{\"password\":\"*****\",\"note\":\"a \\\"b\\\"\"}", convert(converter, "{\"password\":\"se\\\"cret\",\"note\":\"a \\\"b\\\"\"}"));
+        assertEquals("{\"pass\\u0077ord\":\"*****\"}", convert(converter, "{\"pass\\u0077ord\":\"secret\"}"));
+    }
+
+    @Test
+    public void testNested() {
+        assertEquals("{\"users\":[{\"name\":\"a\",\"password\":\"*****\"},{\"name\":\"b\",\"password\":\"*****\"}]}",
+                convert(converter, "{\"users\":[{\"name\":\"a\",\"password\":\"x\"},{\"name\":\"b\",\"password\":\"y\"}]}"));
+        // every value under a masked key is masked, its keys are kept
+        assertEquals("{\"card\":{\"number\":\"*****\",\"expiry\":[\"*****\",\"*****\"]},\"id\":7}", convert(converter, "{\"card\":{\"number\":\"4111\",\"expiry\":[12,2030]},\"id\":7}"));
+        // a key only masks values at its own level
+        assertEquals("{\"a\":{\"password\":\"*****\"},\"b\":\"x\"}", convert(converter, "{\"a\":{\"password\":\"p\"},\"b\":\"x\"}"));
+    }
+
+    @Test
+    public void testEscapedJson() {
+        assertEquals("{\"body\":\"{\\\"password\\\":\\\"*****\\\"}\"}", convert(converter, "{\"body\":\"{\\\"password\\\":\\\"x\\\"}\"}"));
+        assertEquals("{\"body\":\"{\\\"user\\\": {\\\"ssn\\\": \\\"*****\\\", \\\"pin\\\": 12}, \\\"apiKey\\\": \\\"*****\\\"}\", \"id\": 1}",
+                convert(converter, "{\"body\":\"{\\\"user\\\": {\\\"ssn\\\": 123456789, \\\"pin\\\": 12}, \\\"apiKey\\\": \\\"a\\\\\\\"b\\\"}\", \"id\": 1}"));
+        // escaped values and truncated embedded JSON
+        assertEquals("{\"body\":\"{\\\"password\\\":\\\"*****\", \"ssn\": \"*****\"}", convert(converter, "{\"body\":\"{\\\"password\\\":\\\"x\", \"ssn\": \"y\"}"));
+        assertNotMasked(converter, "{\"body\":\"{\\\"user\\\":\\\"password\\\"}\"}");
+    }
+
+    @Test
+    public void testNotJson() {
+        assertNotMasked(converter, "password=secret and ssn: 123");
+        assertNotMasked(converter, "map {password=secret} and {\"user\":\"password\"}");
+        assertNotMasked(converter, "{\"user\":\"jdoe\"}");
+        assertNotMasked(converter, "");
+        // text around JSON is left alone, also after broken JSON
+        assertEquals("in {\"password\":\"*****\"} out {password} \"password\":\"x\"", convert(converter, "in {\"password\":\"y\"} out {password} \"password\":\"x\""));
+        assertEquals("{\"a\" 1} {\"password\":\"*****\"}", convert(converter, "{\"a\" 1} {\"password\":\"x\"}"));
+    }
+
+    @Test
+    public void testTruncated() {
+        assertEquals("{\"user\":\"jdoe\",\"password\":\"*****", convert(converter, "{\"user\":\"jdoe\",\"password\":\"sec"));
+        assertEquals("{\"card\":{\"number\":\"*****\",\"cvv\":\"*****\"", convert(converter, "{\"card\":{\"number\":\"4111\",\"cvv\":\"123\""));
+    }
+
+    @Test
+    public void testAppend() {
+        StringBuilder out = new StringBuilder("x ");
+        assertTrue(new JsonKeyMasker(Arrays.asList("password")).mask("{\"password\":\"p\"} y", out));
+        assertEquals("x {\"password\":\"*****\"} y", out.toString());
+        assertFalse(new JsonKeyMasker(Arrays.asList("password")).mask("{}", out));
+        assertEquals("x {\"password\":\"*****\"} y{}", out.toString());
+    }
+
+    @Test
+    public void testNoKeys() {
+        JsonMaskingConverter plain = new JsonMaskingConverter();
+        plain.setContext(new LoggerContext());
+        plain.start();
+        assertNotMasked(plain, "{\"password\":\"secret\"}");
+    }
+}
@@ -14,11 +14,17 @@
 package org.owasp.security.logging.mask;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,6 +34,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.owasp.security.logging.SecurityMarkers;
+import org.owasp.security.logging.Sensitive;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 
@@ -125,4 +132,102 @@ public class MaskingConverterTest {
         assertTrue(layoutMessage.contains("ssn=" + MaskingConverter.MASKED_PASSWORD));
     }
 
+    @Test
+    public void testArgumentsAreNotModified() {
+        LOGGER.info(SecurityMarkers.CONFIDENTIAL, "userid={}, password='{}'", "myId", "secret");
+
+        verify(mockAppender).doAppend(captorLoggingEvent.capture());
+        final LoggingEvent loggingEvent = captorLoggingEvent.getValue();
+
+        String layoutMessage = encoder.getLayout().doLayout(loggingEvent);
+        assertTrue(layoutMessage.contains("userid=" + MaskingConverter.MASKED_PASSWORD));
+
+        // other appenders and converters still see the original arguments
+        assertArrayEquals(new Object[] { "myId", "secret" }, loggingEvent.getArgumentArray());
+        assertEquals("userid=myId, password='secret'", loggingEvent.getFormattedMessage());
+    }
+
+    @Test
+    public void testNotConfidential() {
+        LOGGER.info(SecurityMarkers.SECURITY_AUDIT, "userid={}", "myId");
+
+        verify(mockAppender).doAppend(captorLoggingEvent.capture());
+        final LoggingEvent loggingEvent = captorLoggingEvent.getValue();
+
+        String layoutMessage = encoder.getLayout().doLayout(loggingEvent);
+        assertTrue(layoutMessage.contains("userid=myId"));
+    }
+
+    @Test
+    public void testPlaceholders() {
+        String masked = MaskingConverter.MASKED_PASSWORD;
+        assertEquals("a=" + masked + " b=" + masked, format("a={} b={}", "1", "2"));
+        assertEquals("a=" + masked + " b={}", format("a={} b={}", "1"));
+        assertEquals("a=" + masked, format("a={}", "1", new IllegalStateException()));
+        assertEquals("a={} b=" + masked, format("a=\\{} b={}", "1"));
+        assertEquals("a=\\" + masked, format("a=\\\\{}", "1"));
+        assertEquals("no placeholders", format("no placeholders", "1"));
+        assertEquals("a={}", format("a={}", (Object[]) null));
+    }
+
+    @Test
+    public void testSensitiveArguments() {
+        LOGGER.info(SecurityMarkers.CONFIDENTIAL, "userid={}, password='{}', roles={}", "myId", Sensitive.of("secret"), new int[] { 1, 2 });
+
+        verify(mockAppender).doAppend(captorLoggingEvent.capture());
+        final LoggingEvent loggingEvent = captorLoggingEvent.getValue();
+
+        // only the wrapped argument is masked
+        String layoutMessage = encoder.getLayout().doLayout(loggingEvent);
+        assertTrue(layoutMessage.contains("userid=myId, password='" + MaskingConverter.MASKED_PASSWORD + "', roles=[1, 2]"));
+        assertFalse(layoutMessage.contains("secret"));
+    }
+
+    @Test
+    public void testSensitiveNotConfidential() {
+        LOGGER.info("userid={}, password='{}'", "myId", Sensitive.of("secret"));
+
+        verify(mockAppender).doAppend(captorLoggingEvent.capture());
+        final LoggingEvent loggingEvent = captorLoggingEvent.getValue();
+
+        String layoutMessage = encoder.getLayout().doLayout(loggingEvent);
+        assertTrue(layoutMessage.contains("userid=myId, password='" + MaskingConverter.MASKED_PASSWORD + "'"));
+    }
+
+    @Test
+    public void testTokens() {
+        System.setProperty("MASKING_CONVERTER_TEST_KEY", "test key");
+        try {
+            PatternLayout.defaultConverterMap.put("tokenMask", MaskingConverter.class.getName());
+            PatternLayoutEncoder tokenEncoder = new PatternLayoutEncoder();
+            tokenEncoder.setContext(loggerContext);
+            tokenEncoder.setPattern("%tokenMask{token, MASKING_CONVERTER_TEST_KEY}");
+            tokenEncoder.start();
+
+            LOGGER.info(SecurityMarkers.CONFIDENTIAL, "user={} ssn={}", "jdoe", "123-45-6789");
+            LOGGER.info("user={} ssn={}", "jdoe", Sensitive.of("123-45-6789"));
+            LOGGER.info(SecurityMarkers.CONFIDENTIAL, "user={} ssn={}", "jdoe", "987-65-4321");
+
+            verify(mockAppender, times(3)).doAppend(captorLoggingEvent.capture());
+            List<LoggingEvent> events = captorLoggingEvent.getAllValues();
+            String first = tokenEncoder.getLayout().doLayout(events.get(0));
+            String second = tokenEncoder.getLayout().doLayout(events.get(1));
+            String third = tokenEncoder.getLayout().doLayout(events.get(2));
+
+            String token = new TokenMasker("test key".getBytes(StandardCharsets.UTF_8)).token("123-45-6789");
+            assertEquals("user=" + new TokenMasker("test key".getBytes(StandardCharsets.UTF_8)).token("jdoe") + " ssn=" + token, first);
+            // the same value gets the same token, whether marked CONFIDENTIAL or wrapped
+            assertEquals("user=jdoe ssn=" + token, second);
+            assertFalse(third.contains(token));
+            assertFalse(third.contains("987"));
+        } finally {
+            System.clearProperty("MASKING_CONVERTER_TEST_KEY");
+        }
+    }
+
+    private static String format(String pattern, Object... args) {
+        StringBuilder buf = new StringBuilder();
+        MaskingConverter.appendMasked(buf, pattern, args, true, null);
+        return buf.toString();
+    }
 }
@@ -0,0 +1,78 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.owasp.security.logging.mask.ConverterFixtures.event;
+import static org.owasp.security.logging.mask.ConverterFixtures.layout;
+
+import org.junit.Test;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class SanitizingConverterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    @Test
+    public void testReplace() {
+        LogSanitizer sanitizer = LogSanitizer.replacing('_');
+
+        assertEquals("a_b_c_d_e_f", sanitizer.sanitize("a\rb\nc\u0085d e f"));
+        assertEquals("nul_ bell_ del_ tab\tkept", sanitizer.sanitize("nul\u0000 bell\u0007 del\u007F tab\tkept"));
+        assertEquals("color _red_ plain", sanitizer.sanitize("color \u001B[31;1mred\u001B[0m plain"));
+        assertEquals("cursor _up", sanitizer.sanitize("cursor \u001BMup"));
+        assertEquals("end_", sanitizer.sanitize("end\u001B["));
+        assertEquals("fake__INFO ok", sanitizer.sanitize("fake\r\nINFO ok"));
+    }
+
+    @Test
+    public void testEscape() {
+        LogSanitizer sanitizer = LogSanitizer.escaping();
+
+        assertEquals("a\\rb\\nc\\u0085d\\u2028e", sanitizer.sanitize("a\rb\nc\u0085d e"));
+        assertEquals("\\u001B[31mred", sanitizer.sanitize("\u001B[31mred"));
+    }
+
+    @Test
+    public void testCleanInput() {
+        String clean = "A clean message, with unicode é中 and a\ttab";
+        assertSame(clean, LogSanitizer.replacing('_').sanitize(clean));
+        assertSame(clean, LogSanitizer.escaping().sanitize(clean));
+        assertNull(LogSanitizer.escaping().sanitize(null));
+
+        StringBuilder out = new StringBuilder("x");
+        assertFalse(LogSanitizer.escaping().sanitize(clean, out));
+        assertEquals("x" + clean, out.toString());
+        assertTrue(LogSanitizer.escaping().sanitize("a\nb", out));
+        assertEquals("x" + clean + "a\\nb", out.toString());
+    }
+
+    @Test
+    public void testConverterOptions() {
+        assertEquals("a_b", layout(loggerContext, "%sanitize(%msg)", "sanitize").doLayout(event("a\nb")));
+        assertEquals("a\\nb", layout(loggerContext, "%sanitize(%msg){escape}", "sanitize").doLayout(event("a\nb")));
+        assertEquals("a?b", layout(loggerContext, "%sanitize(%msg){replace, ?}", "sanitize").doLayout(event("a\nb")));
+        assertNull(SanitizingConverter.fromOptions("strip", null));
+        assertNull(SanitizingConverter.fromOptions("replace", "\n"));
+    }
+
+    @Test
+    public void testThrowableMessages() {
+        PatternLayout layout = layout(loggerContext, "%sanitize(%msg)%n%sanitizedEx", "sanitize", "sanitizedEx");
+        LoggingEvent event = event("failed");
+        IllegalStateException cause = new IllegalStateException("cause\r\nERROR forged");
+        event.setThrowableProxy(new ch.qos.logback.classic.spi.ThrowableProxy(new RuntimeException("outer\u001B[2J", cause)));
+
+        String output = layout.doLayout(event);
+        assertTrue(output, output.contains("java.lang.RuntimeException: outer_"));
+        assertTrue(output, output.contains("Caused by: java.lang.IllegalStateException: cause__ERROR forged"));
+        assertFalse(output.contains("\u001B"));
+        // the stack trace is only printed once
+        assertEquals(output.indexOf("java.lang.RuntimeException"), output.lastIndexOf("java.lang.RuntimeException"));
+    }
+}
@@ -0,0 +1,104 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.owasp.security.logging.mask.ConverterFixtures.event;
+import static org.owasp.security.logging.mask.ConverterFixtures.layout;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+
+public class SecretMaskingConverterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    @After
+    public void tearDown() {
+        SecretDictionary.clear();
+    }
+
+    @Test
+    public void testRegister() {
+        String message = "connecting with s3cr3t-pw";
+        assertSame(message, SecretDictionary.mask(message));
+
+        assertTrue(SecretDictionary.register("s3cr3t-pw"));
+        assertFalse(SecretDictionary.register("s3cr3t-pw"));
+        assertEquals(1, SecretDictionary.size());
+        assertEquals("connecting with ********", SecretDictionary.mask(message));
+
+        assertTrue(SecretDictionary.deregister("s3cr3t-pw"));
+        assertFalse(SecretDictionary.deregister("s3cr3t-pw"));
+        assertSame(message, SecretDictionary.mask(message));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooShort() {
+        SecretDictionary.register("abc");
+    }
+
+    @Test
+    public void testMask() {
+        SecretDictionary.register("api-key-1");
+        SecretDictionary.register("hunter2");
+
+        assertEquals("key=******** pw=******** again ********", SecretDictionary.mask("key=api-key-1 pw=hunter2 again api-key-1"));
+        // adjacent secrets and secrets inside words are masked as well
+        assertEquals("x********y", SecretDictionary.mask("xhunter2api-key-1y"));
+        String clean = "hunter api-key-2";
+        assertSame(clean, SecretDictionary.mask(clean));
+
+        StringBuilder out = new StringBuilder("> ");
+        assertTrue(SecretDictionary.mask("pw hunter2", out));
+        assertFalse(SecretDictionary.mask(" done", out));
+        assertEquals("> pw ******** done", out.toString());
+    }
+
+    @Test
+    public void testOverlappingSecrets() {
+        // a secret that starts inside another one that was already masked is not revealed
+        SecretDictionary.register("bbcc");
+        SecretDictionary.register("ddee");
+        SecretDictionary.register("abbccddeef");
+
+        assertEquals("********", SecretDictionary.mask("abbccddeef"));
+        assertEquals("x********y", SecretDictionary.mask("xbbccddeey"));
+        String masked = SecretDictionary.mask("zbbcc ddee abbccddeef");
+        assertFalse(masked, masked.contains("bbcc") || masked.contains("ddee") || masked.contains("f"));
+    }
+
+    @Test
+    public void testInPlace() {
+        SecretDictionary.register("hunter2");
+        StringBuilder buf = new StringBuilder("hunter2 kept|");
+        int start = buf.length();
+        buf.append("pw=hunter2.");
+        assertTrue(SecretDictionary.mask(buf, start));
+        assertEquals("hunter2 kept|pw=********.", buf.toString());
+        assertFalse(SecretDictionary.mask(buf, start));
+    }
+
+    @Test
+    public void testConverter() {
+        SecretDictionary.register("hunter2");
+        PatternLayout layout = layout(loggerContext, "%nopex%maskSecrets(%msg%n%ex)", "maskSecrets");
+        LoggingEvent event = event("login with hunter2");
+        event.setThrowableProxy(new ThrowableProxy(new IllegalStateException("bad password hunter2")));
+
+        String output = layout.doLayout(event);
+        assertTrue(output, output.startsWith("login with ********"));
+        assertTrue(output, output.contains("java.lang.IllegalStateException: bad password ********"));
+        assertFalse(output, output.contains("hunter2"));
+
+        // secrets registered later are picked up
+        SecretDictionary.register("swordfish");
+        assertEquals("********", layout(loggerContext, "%maskSecrets(%msg)", "maskSecrets").doLayout(event("swordfish")));
+    }
+}
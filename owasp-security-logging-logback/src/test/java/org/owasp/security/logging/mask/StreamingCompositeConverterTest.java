@@ -0,0 +1,99 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.owasp.security.logging.mask.ConverterFixtures.event;
+import static org.owasp.security.logging.mask.ConverterFixtures.layout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.security.logging.SecurityMarkers;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class StreamingCompositeConverterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+
+    @Before
+    public void setUp() {
+        CountingConverter.converted.set(0);
+        CountingConverter.appended.set(0);
+    }
+
+    @Test
+    public void testStackedConverters() {
+        LoggingEvent event = event("user={}\npassword={}", "jdoe", "secret");
+        event.setMarker(SecurityMarkers.CONFIDENTIAL);
+
+        assertEquals("user=" + MaskingConverter.MASKED_PASSWORD + "_password=" + MaskingConverter.MASKED_PASSWORD, layout(loggerContext, "%crlf(%mask)", "crlf", "mask").doLayout(event));
+        assertEquals("[user=" + MaskingConverter.MASKED_PASSWORD + "_password=" + MaskingConverter.MASKED_PASSWORD + "]",
+                layout(loggerContext, "%sanitize([%crlf(%mask)])", "sanitize", "crlf", "mask").doLayout(event));
+        // the value is masked up to the line feed, which is replaced
+        assertEquals("password=*****_", layout(loggerContext, "%sanitize(%crlf(%maskedMsg{password}))", "sanitize", "crlf", "maskedMsg").doLayout(event("password=abc\u001B[0m\r\n")));
+    }
+
+    @Test
+    public void testChildrenAreStreamed() {
+        assertEquals("INFO a_b_", layout(loggerContext, "%sanitize(%level %count%n)", "sanitize", "count").doLayout(event("a\nb")));
+        assertEquals("a_b", layout(loggerContext, "%crlf(%sanitize(%count))", "crlf", "sanitize", "count").doLayout(event("a\nb")));
+        assertEquals(0, CountingConverter.converted.get());
+        assertEquals(2, CountingConverter.appended.get());
+    }
+
+    @Test
+    public void testFormattedChildren() {
+        // padded or truncated children are converted to a String first
+        assertEquals("  a_b", layout(loggerContext, "%crlf(%5count)", "crlf", "count").doLayout(event("a\nb")));
+        assertEquals("[a_b  ]", layout(loggerContext, "%crlf([%-5sanitize(%msg)])", "crlf", "sanitize").doLayout(event("a\nb")));
+        assertEquals(1, CountingConverter.converted.get());
+        assertEquals(0, CountingConverter.appended.get());
+    }
+
+    @Test
+    public void testSanitizeInPlace() {
+        StringBuilder buf = new StringBuilder("kept\n");
+        assertFalse(LogSanitizer.replacing('_').sanitize(buf, buf.length()));
+        buf.append("a\rb c");
+        assertTrue(LogSanitizer.replacing('_').sanitize(buf, 5));
+        assertEquals("kept\na_b_c", buf.toString());
+
+        buf.setLength(5);
+        buf.append("x\ny\u001B[1mz\r");
+        assertTrue(LogSanitizer.replacing('_').sanitize(buf, 5));
+        assertEquals("kept\nx_y_z_", buf.toString());
+
+        buf.setLength(5);
+        buf.append("x\ny");
+        assertTrue(LogSanitizer.escaping().sanitize(buf, 5));
+        assertEquals("kept\nx\\ny", buf.toString());
+    }
+
+    /**
+     * Outputs the formatted message, counting how it was called.
+     */
+    public static class CountingConverter extends ClassicConverter implements StreamingConverter {
+
+        static final AtomicInteger converted = new AtomicInteger();
+
+        static final AtomicInteger appended = new AtomicInteger();
+
+        @Override
+        public String convert(ILoggingEvent event) {
+            converted.incrementAndGet();
+            return event.getFormattedMessage();
+        }
+
+        @Override
+        public void append(ILoggingEvent event, StringBuilder out) {
+            appended.incrementAndGet();
+            out.append(event.getFormattedMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.owasp.security.logging.mask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+import org.owasp.security.logging.Sensitive;
+
+public class TokenMaskerTest {
+
+    private static final byte[] KEY = "test key".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testTokens() throws Exception {
+        TokenMasker masker = new TokenMasker(KEY);
+
+        String token = masker.token("secret");
+        assertTrue(token.startsWith(TokenMasker.PREFIX));
+        assertEquals(TokenMasker.PREFIX.length() + TokenMasker.DEFAULT_TOKEN_LENGTH, token.length());
+        assertEquals(expected("secret", TokenMasker.DEFAULT_TOKEN_LENGTH), token);
+
+        // recent tokens are cached
+        assertSame(token, masker.token("secret"));
+        assertEquals(token, masker.token(Sensitive.of("secret")));
+        assertNotEquals(token, masker.token("secret2"));
+        assertNotEquals(token, new TokenMasker("other key".getBytes(StandardCharsets.UTF_8)).token("secret"));
+    }
+
+    @Test
+    public void testEncoding() throws Exception {
+        TokenMasker masker = new TokenMasker(KEY, 64, 0);
+        for (String value : new String[] { "", "ascii", "\u00E9\u4E2D", "emoji \uD83D\uDE00", "lone \uD800 surrogate", new String(new char[2000]).replace('\0', 'x') }) {
+            assertEquals(value, expected(value, 64), masker.token(value));
+        }
+        // null and "null" get different tokens
+        assertNotEquals(masker.token("null"), masker.token(null));
+        assertEquals(masker.token(null), masker.token(Sensitive.of(null)));
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        final TokenMasker masker = new TokenMasker(KEY, 16, 4);
+        final String[] tokens = new String[8];
+        Thread[] threads = new Thread[tokens.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        masker.token("value" + (i % 10));
+                    }
+                    tokens[index] = masker.token("value");
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String token : tokens) {
+            assertEquals(expected("value", 16), token);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        new TokenMasker(KEY, 4, 10);
+    }
+
+    private static String expected(String value, int length) throws Exception {
+        Mac mac = Mac.getInstance(TokenMasker.ALGORITHM);
+        mac.init(new SecretKeySpec(KEY, TokenMasker.ALGORITHM));
+        byte[] digest = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(TokenMasker.PREFIX);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.substring(0, TokenMasker.PREFIX.length() + length);
+    }
+}
@@ -0,0 +1,107 @@
+package org.owasp.security.logging.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class KeyedRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstAndRefill() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(2, 3, 100);
+        long now = System.nanoTime();
+
+        // the burst is available at once
+        assertTrue(limiter.tryAcquire("10.0.0.1", now));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now));
+        assertFalse(limiter.tryAcquire("10.0.0.1", now));
+
+        // other keys have their own bucket
+        assertTrue(limiter.tryAcquire("10.0.0.2", now));
+
+        // two permits per second
+        assertTrue(limiter.tryAcquire("10.0.0.1", now + SECOND / 2));
+        assertFalse(limiter.tryAcquire("10.0.0.1", now + SECOND / 2));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now + SECOND));
+    }
+
+    @Test
+    public void testDrainSuppressed() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 1, 100);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("10.0.0.1", now);
+        }
+        limiter.tryAcquire("10.0.0.2", now);
+
+        Map<String, Long> suppressed = limiter.drainSuppressed();
+        assertEquals(1, suppressed.size());
+        assertEquals(Long.valueOf(4), suppressed.get("10.0.0.1"));
+
+        // counts are reset
+        assertTrue(limiter.drainSuppressed().isEmpty());
+    }
+
+    @Test
+    public void testBoundedKeys() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 1, 2);
+        long now = System.nanoTime();
+
+        assertTrue(limiter.tryAcquire("a", now));
+        assertTrue(limiter.tryAcquire("b", now));
+
+        // the table is full of active keys, new keys share the overflow bucket
+        assertTrue(limiter.tryAcquire("c", now));
+        assertFalse(limiter.tryAcquire("d", now));
+        assertEquals(2, limiter.size());
+        assertEquals(Long.valueOf(1), limiter.drainSuppressed().get(KeyedRateLimiter.OVERFLOW_KEY));
+
+        // idle keys are evicted to make room
+        assertTrue(limiter.tryAcquire("e", now + 2 * SECOND));
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    public void testNoSuppressedLostOnEviction() throws InterruptedException {
+        final KeyedRateLimiter limiter = new KeyedRateLimiter(1000, 1, 4);
+        final long start = System.nanoTime();
+        final AtomicLong clock = new AtomicLong();
+        final AtomicLong denied = new AtomicLong();
+
+        // more keys than fit, and a clock that lets buckets refill, so buckets are evicted while others count
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        long now = start + clock.addAndGet(SECOND / 100000);
+                        if (!limiter.tryAcquire("10.0.0." + (i % 8), now)) {
+                            denied.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long reported = 0;
+        for (Long count : limiter.drainSuppressed().values()) {
+            reported += count;
+        }
+        assertEquals(denied.get(), reported);
+    }
+}
@@ -0,0 +1,61 @@
+package org.owasp.security.logging.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+    @Test
+    public void testScan() {
+        KeywordMatcher matcher = KeywordMatcher.builder().add("password", 0).add("pass", 1).add("word", 2).add("sword", 3).build();
+
+        assertEquals(0L, matcher.scan(""));
+        assertEquals(0L, matcher.scan("nothing to see here"));
+        assertEquals(0b0010L, matcher.scan("boarding pass"));
+        assertEquals(0b1111L, matcher.scan("password"));
+        assertEquals(0b1110L, matcher.scan("passing swords"));
+        assertEquals(0b1100L, matcher.scan("swordfish"));
+    }
+
+    @Test
+    public void testOverlappingPrefixes() {
+        // failure links must find keywords starting inside a partial match
+        KeywordMatcher matcher = KeywordMatcher.builder().add("aab", 0).add("ab", 1).add("bc", 2).build();
+
+        assertEquals(0b011L, matcher.scan("aaab"));
+        assertEquals(0b110L, matcher.scan("abc"));
+        assertEquals(0L, matcher.scan("aaaa"));
+    }
+
+    @Test
+    public void testNonAsciiKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.builder().add("mot de passe", 0).add("contraseña", 1).add("пароль", 63).build();
+
+        assertEquals(1L, matcher.scan("le mot de passe"));
+        assertEquals(0b10L, matcher.scan("la contraseña=x"));
+        assertEquals(Long.MIN_VALUE, matcher.scan("пароль: x"));
+        assertEquals(0L, matcher.scan("contrasena ñ пар"));
+    }
+
+    @Test
+    public void testMatchLength() {
+        KeywordMatcher matcher = KeywordMatcher.builder().add("abcd", 0).add("bc", 0).add("c", 1).build();
+        String text = "xabcdbc";
+        // the length of the longest keyword ending at each char
+        int[] expected = { 0, 0, 0, 2, 4, 0, 2 };
+        int[] lengths = new int[text.length()];
+        int state = KeywordMatcher.START;
+        for (int i = 0; i < text.length(); i++) {
+            state = matcher.next(state, text.charAt(i));
+            lengths[i] = matcher.matchLength(state);
+        }
+        assertArrayEquals(expected, lengths);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGroup() {
+        KeywordMatcher.builder().add("password", KeywordMatcher.MAX_GROUPS);
+    }
+}
@@ -0,0 +1,56 @@
+package org.owasp.security.logging.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class RepeatTrackerTest {
+
+    @Test
+    public void testWindow() {
+        RepeatTracker<String> tracker = new RepeatTracker<>(1000, 100);
+
+        assertFalse(tracker.isRepeat("a", 0));
+        assertTrue(tracker.isRepeat("a", 100));
+        assertTrue(tracker.isRepeat("a", 900));
+        assertFalse(tracker.isRepeat("b", 900));
+
+        // nothing has closed yet
+        assertTrue(tracker.expire(999).isEmpty());
+
+        List<RepeatTracker.Repeat<String>> repeats = tracker.expire(1000);
+        assertEquals(1, repeats.size());
+        assertEquals("a", repeats.get(0).getKey());
+        assertEquals(2, repeats.get(0).getCount());
+        assertEquals(100, repeats.get(0).getFirst());
+        assertEquals(900, repeats.get(0).getLast());
+
+        // a closed window starts over
+        assertFalse(tracker.isRepeat("a", 1000));
+        assertEquals(2, tracker.size());
+
+        // b had no repeats
+        assertTrue(tracker.expire(5000).isEmpty());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testBounded() {
+        RepeatTracker<Integer> tracker = new RepeatTracker<>(60000, 16);
+
+        for (int i = 0; i < 1000; i++) {
+            tracker.isRepeat(i, 0);
+            tracker.isRepeat(i, 1);
+        }
+        assertTrue(tracker.size() <= 16);
+
+        // windows closed early are still reported
+        List<RepeatTracker.Repeat<Integer>> repeats = tracker.flush();
+        assertEquals(1000, repeats.size());
+        assertEquals(0, tracker.size());
+    }
+}